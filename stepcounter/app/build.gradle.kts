@@ -1,5 +1,6 @@
 plugins {
     alias(libs.plugins.android.application)
+    alias(libs.plugins.baselineprofile)
 }
 
 android {
@@ -16,9 +17,26 @@ android {
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
     }
 
+    buildFeatures {
+        buildConfig = true
+    }
+
     buildTypes {
+        debug {
+            buildConfigField("boolean", "TRACE_ENABLED", "true")
+            // StepLog 的最低级别，取值同 android.util.Log (3 = DEBUG, 4 = INFO)
+            buildConfigField("int", "LOG_LEVEL", "3")
+        }
         release {
-            isMinifyEnabled = false
+            // 需要在 release 包上抓 Perfetto 跟踪时: ./gradlew assembleRelease -PtraceRelease=true
+            buildConfigField("boolean", "TRACE_ENABLED",
+                (project.findProperty("traceRelease") == "true").toString())
+            buildConfigField("int", "LOG_LEVEL", "4")
+            // R8 缩减、优化和混淆，并删除未引用的资源。
+            // 对比未缩减的包（大小和启动时间）: ./gradlew assembleRelease -PminifyRelease=false
+            val minify = project.findProperty("minifyRelease") != "false"
+            isMinifyEnabled = minify
+            isShrinkResources = minify
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
@@ -29,6 +47,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+    testOptions {
+        // 本地单元测试中 android.util.Log 等桩方法返回默认值，便于在 JVM 上回放轨迹
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -37,13 +59,47 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
+    // 安装时（或首次启动后在后台）按基准配置文件预编译启动路径，release 包首次启动不再全靠解释执行
+    implementation(libs.profileinstaller)
+    // 基准配置文件由 :macrobenchmark 生成: ./gradlew :app:generateBaselineProfile
+    baselineProfile(project(":macrobenchmark"))
 
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-    implementation(libs.play.services.location)
-    implementation(libs.play.services.maps)
-    implementation(libs.karumi.dexter)
-    implementation(libs.google.code.gson)
+}
 
+// 安装包大小报告：APK 总大小、各 dex 的大小、方法数和类数，每次构建归档一份以对比趋势。
+// 运行: ./gradlew :app:assembleRelease :app:apkSizeReport
+// 输出: build/reports/apk-size/release.txt
+tasks.register("apkSizeReport") {
+    val apkDir = layout.buildDirectory.dir("outputs/apk/release")
+    val report = layout.buildDirectory.file("reports/apk-size/release.txt")
+    mustRunAfter("assembleRelease")
+    doLast {
+        val apks = apkDir.get().asFile.listFiles().orEmpty().filter { it.name.endsWith(".apk") }
+        check(apks.isNotEmpty()) { "找不到 release APK，先运行 assembleRelease" }
+        val lines = mutableListOf<String>()
+        for (apk in apks.sortedBy { it.name }) {
+            lines += "${apk.name}: ${apk.length()} bytes"
+            var totalMethods = 0
+            java.util.zip.ZipFile(apk).use { zip ->
+                for (entry in zip.entries().toList().filter { it.name.matches(Regex("classes\\d*\\.dex")) }) {
+                    val header = java.nio.ByteBuffer.wrap(zip.getInputStream(entry).use { it.readNBytes(0x70) })
+                        .order(java.nio.ByteOrder.LITTLE_ENDIAN)
+                    // dex 文件头: method_ids_size 在 0x58，class_defs_size 在 0x60
+                    val methods = header.getInt(0x58)
+                    val classes = header.getInt(0x60)
+                    totalMethods += methods
+                    lines += "  ${entry.name}: ${entry.size} bytes, $methods methods, $classes classes"
+                }
+            }
+            lines += "  total methods: $totalMethods"
+        }
+        val out = report.get().asFile
+        out.parentFile.mkdirs()
+        out.writeText(lines.joinToString("\n", postfix = "\n"))
+        println(out.readText())
+    }
 }
\ No newline at end of file
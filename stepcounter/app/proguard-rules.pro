@@ -1,21 +1,18 @@
-# Add project specific ProGuard rules here.
-# You can control the set of applied configuration files using the
-# proguardFiles setting in build.gradle.
-#
-# For more details, see
-#   http://developer.android.com/guide/developing/tools/proguard.html
+# release 包的 R8 规则（AGP 8 默认即 full mode）。
+# 清单中声明的 Activity / Service / BroadcastReceiver 由 AAPT 生成的规则保留，
+# 应用内没有反射、序列化或 JNI，其余类都可以重命名、内联和删除。
 
-# If your project uses WebView with JS, uncomment the following
-# and specify the fully qualified class name to the JavaScript interface
-# class:
-#-keepclassmembers class fqcn.of.javascript.interface.for.webview {
-#   public *;
-#}
+# 保留行号，崩溃堆栈可以用 build/outputs/mapping/release/mapping.txt 还原（retrace）
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
 
-# Uncomment this to preserve the line number information for
-# debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+# release 的 LOG_LEVEL 为 INFO，StepLog.d 本身是空操作；这里连同调用处的参数装箱一起删除。
+# 如果在 release 上打开 DEBUG 日志，需要同时去掉这条规则
+-assumenosideeffects class com.example.stepcounter.StepLog {
+    public static void d(...);
+}
 
-# If you keep the line number information, uncomment this to
-# hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+# 前台服务通过 dumpsys 输出状态，dump() 覆盖框架方法本来就会保留，这里写明以免被误删
+-keepclassmembers class com.example.stepcounter.StepCounterService {
+    protected void dump(java.io.FileDescriptor, java.io.PrintWriter, java.lang.String[]);
+}
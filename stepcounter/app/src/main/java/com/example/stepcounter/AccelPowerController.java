@@ -0,0 +1,165 @@
+package com.example.stepcounter;
+
+import java.util.Locale;
+
+/**
+ * 加速度传感器的功耗状态机（仅在没有计步传感器时使用）。
+ *
+ * ACTIVE：全速采样，交给检测算法计步；算法持续静止 STILL_TIMEOUT_MS 后进入 SLEEPING。
+ * SLEEPING：注销加速度传感器，优先挂上低功耗唤醒触发（显著运动 / 步伐检测传感器），
+ * 触发后回到 ACTIVE；没有可用的触发传感器时定时进入 PROBING。
+ * PROBING：低速采样一个短窗口，合加速度方差超过阈值说明在动，回到 ACTIVE，
+ * 否则回到 SLEEPING，下次探测的间隔逐步加倍。
+ *
+ * 传感器注册和定时由调用方通过 Actions 完成，时间由调用方传入 (SystemClock.elapsedRealtime)，
+ * 便于在 JVM 上测试。同时统计各状态的累计时长。非线程安全，在传感器线程上调用。
+ */
+public class AccelPowerController {
+    public enum State { ACTIVE, SLEEPING, PROBING }
+
+    public interface Actions {
+        void startFullRate();
+        void startProbe();
+        void stopAccelerometer();
+        // 挂上低功耗唤醒触发，设备不支持时返回 false
+        boolean armWakeTrigger();
+        void disarmWakeTrigger();
+        // 安排一次 onTimer 回调，再次调用会替换之前的安排
+        void scheduleTimer(long delayMs);
+        void cancelTimer();
+    }
+
+    static final long STILL_TIMEOUT_MS = 60 * 1000;
+    static final long MIN_PROBE_INTERVAL_MS = 20 * 1000;
+    static final long MAX_PROBE_INTERVAL_MS = 2 * 60 * 1000;
+    static final long PROBE_TIMEOUT_MS = 5 * 1000;
+    static final int PROBE_SAMPLES = 16;
+    // 未滤波的合加速度方差，静止时通常小于 0.05
+    private static final float PROBE_MOTION_VARIANCE = 0.5f;
+
+    private final Actions actions;
+    private final SlidingWindowStats probeWindow = new SlidingWindowStats(PROBE_SAMPLES);
+    private final long[] timeInState = new long[State.values().length];
+    private final long[] entries = new long[State.values().length];
+
+    private State state = State.ACTIVE;
+    private long stateSince;
+    private long stillSince = -1;
+    private long probeInterval = MIN_PROBE_INTERVAL_MS;
+    private boolean triggerArmed = false;
+
+    public AccelPowerController(Actions actions, long nowElapsedMs) {
+        this.actions = actions;
+        this.stateSince = nowElapsedMs;
+        entries[State.ACTIVE.ordinal()] = 1;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // 全速采样时每批样本处理完后调用，still 为检测算法当前的静止判断
+    public void onActiveBatch(boolean still, long nowElapsedMs) {
+        if (state != State.ACTIVE) {
+            return;
+        }
+        if (!still) {
+            stillSince = -1;
+        } else if (stillSince < 0) {
+            stillSince = nowElapsedMs;
+        } else if (nowElapsedMs - stillSince >= STILL_TIMEOUT_MS) {
+            enterSleeping(nowElapsedMs);
+        }
+    }
+
+    // 唤醒触发传感器回调
+    public void onWakeTrigger(long nowElapsedMs) {
+        triggerArmed = false;
+        if (state != State.ACTIVE) {
+            enterActive(nowElapsedMs);
+        }
+    }
+
+    public void onTimer(long nowElapsedMs) {
+        if (state == State.SLEEPING) {
+            enterProbing(nowElapsedMs);
+        } else if (state == State.PROBING) {
+            // 窗口内没收到足够的样本，按静止处理
+            finishProbe(false, nowElapsedMs);
+        }
+    }
+
+    public void onProbeSample(float x, float y, float z, long nowElapsedMs) {
+        if (state != State.PROBING) {
+            return;
+        }
+        probeWindow.add((float) Math.sqrt(x * x + y * y + z * z));
+        if (probeWindow.isFull()) {
+            finishProbe(probeWindow.variance() > PROBE_MOTION_VARIANCE, nowElapsedMs);
+        }
+    }
+
+    public long getTimeInState(State s, long nowElapsedMs) {
+        long time = timeInState[s.ordinal()];
+        return s == state ? time + (nowElapsedMs - stateSince) : time;
+    }
+
+    public long getEntries(State s) {
+        return entries[s.ordinal()];
+    }
+
+    public String summary(long nowElapsedMs) {
+        StringBuilder sb = new StringBuilder("功耗状态:");
+        for (State s : State.values()) {
+            sb.append(String.format(Locale.US, " %s %ds/%d次",
+                    s, getTimeInState(s, nowElapsedMs) / 1000, entries[s.ordinal()]));
+        }
+        return sb.toString();
+    }
+
+    private void finishProbe(boolean moving, long nowElapsedMs) {
+        if (moving) {
+            enterActive(nowElapsedMs);
+        } else {
+            probeInterval = Math.min(probeInterval * 2, MAX_PROBE_INTERVAL_MS);
+            enterSleeping(nowElapsedMs);
+        }
+    }
+
+    private void enterActive(long nowElapsedMs) {
+        actions.cancelTimer();
+        if (triggerArmed) {
+            actions.disarmWakeTrigger();
+            triggerArmed = false;
+        }
+        stillSince = -1;
+        probeInterval = MIN_PROBE_INTERVAL_MS;
+        setState(State.ACTIVE, nowElapsedMs);
+        actions.startFullRate();
+    }
+
+    private void enterSleeping(long nowElapsedMs) {
+        actions.stopAccelerometer();
+        setState(State.SLEEPING, nowElapsedMs);
+        if (!triggerArmed) {
+            triggerArmed = actions.armWakeTrigger();
+        }
+        if (!triggerArmed) {
+            actions.scheduleTimer(probeInterval);
+        }
+    }
+
+    private void enterProbing(long nowElapsedMs) {
+        probeWindow.clear();
+        setState(State.PROBING, nowElapsedMs);
+        actions.startProbe();
+        actions.scheduleTimer(PROBE_TIMEOUT_MS);
+    }
+
+    private void setState(State next, long nowElapsedMs) {
+        timeInState[state.ordinal()] += nowElapsedMs - stateSince;
+        stateSince = nowElapsedMs;
+        state = next;
+        entries[next.ordinal()]++;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.stepcounter;
+
+/**
+ * 自相关步频检测引擎：在最近一个窗口的合加速度上计算归一化自相关，
+ * 步间间隔范围内第一个超过阈值的局部极大值即为步频周期（抛物线插值到亚样本精度）。
+ * 判定为周期运动时按步频累积相位，每满一个周期计一步；刚进入运动时补计窗口内已走的步数。
+ *
+ * 对偶发的冲击不敏感，适合步伐幅度小但节奏稳定的场景；代价是每 hop 个样本做一次
+ * O(窗口 × 候选周期) 的计算，以及约一个窗口的起步延迟。
+ *
+ * 输入按事件时间戳重采样到固定的 50Hz 网格（高于网格频率时取格内均值，低于时线性插值），
+ * 窗口长度和候选周期都以网格为单位，与传感器的实际采样率和批量投递方式无关。
+ */
+public class AutocorrelationStepDetector implements StepDetector {
+    // 重采样网格
+    private static final int GRID_RATE_HZ = 50;
+    private static final long GRID_NS = 1_000_000_000L / GRID_RATE_HZ;
+    private static final float GRID_MS = 1000f / GRID_RATE_HZ;
+    // 超过该间隔视为采样中断，网格从下一个样本重新开始
+    private static final long MAX_GAP_NS = 1_000_000_000L;
+
+    private final long minStepInterval; // ms
+    private final long maxStepInterval; // ms
+    private final int hop;
+    private final float minScore;
+    private final float stillnessThreshold;
+    private final long stillnessTime; // ns
+    private final long[] singleTimestamp = new long[1];
+    private final long[] singleStep = new long[1];
+
+    // 环形缓冲区与计算时使用的线性副本
+    private final float[] ring;
+    private final float[] linear;
+    private final float[] correlation;
+    private int head = 0;
+    private int size = 0;
+    private int sinceEstimate = 0;
+
+    // 重采样状态：下一个网格点、当前格内样本累加、上一个输入样本
+    private long nextGridNs = 0;
+    private float binSum = 0;
+    private int binCount = 0;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private float lastMagnitude = 0;
+
+    // 当前步频周期(ns)，0 表示没有周期运动
+    private float periodNs = 0;
+    // 最近一次估计的相关系数峰值，0 表示没有周期运动
+    private float score = 0;
+    private float phase = 0;
+    private long walkingEndTime = Long.MIN_VALUE / 2;
+    private long lastMovementTime = 0;
+    private boolean isDeviceStill = false;
+
+    public AutocorrelationStepDetector() {
+        this(StepDetectorConfig.DEFAULT);
+    }
+
+    public AutocorrelationStepDetector(StepDetectorConfig config) {
+        minStepInterval = config.minStepIntervalMs;
+        maxStepInterval = config.maxStepIntervalMs;
+        hop = config.autocorrelationHop;
+        minScore = config.autocorrelationMinScore;
+        stillnessThreshold = config.stillnessThreshold;
+        stillnessTime = config.stillnessTimeMs * 1_000_000L;
+        int window = (int) (config.autocorrelationWindowMs * GRID_RATE_HZ / 1000);
+        ring = new float[window];
+        linear = new float[window];
+        correlation = new float[window / 2 + 2];
+    }
+
+    @Override
+    public boolean detectStep(float[] accelerationData, long timestamp) {
+        if (accelerationData == null || accelerationData.length < 3) {
+            return false;
+        }
+        singleTimestamp[0] = timestamp;
+        return detectSteps(accelerationData, singleTimestamp, 1, singleStep) > 0;
+    }
+
+    @Override
+    public int detectSteps(float[] xyz, long[] timestamps, int n, long[] outStepTimestamps) {
+        final int outCapacity = outStepTimestamps.length;
+        int steps = 0;
+
+        for (int i = 0, j = 0; i < n; i++, j += 3) {
+            long timestamp = timestamps[i];
+            float x = xyz[j];
+            float y = xyz[j + 1];
+            float z = xyz[j + 2];
+            float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+
+            long dt = timestamp - lastTimestamp;
+            if (lastTimestamp == Long.MIN_VALUE || dt > MAX_GAP_NS) {
+                // 第一个样本或采样中断后：网格从当前样本开始
+                nextGridNs = timestamp;
+                binSum = 0;
+                binCount = 0;
+                dt = 0;
+            } else if (dt < 0) {
+                dt = 0;
+            }
+            // 输出当前样本之前的所有网格点：格内有样本取均值，否则在相邻样本间线性插值
+            while (timestamp > nextGridNs) {
+                float value;
+                if (binCount > 0) {
+                    value = binSum / binCount;
+                } else {
+                    float t = (float) (nextGridNs - lastTimestamp) / (timestamp - lastTimestamp);
+                    value = lastMagnitude + t * (magnitude - lastMagnitude);
+                }
+                binSum = 0;
+                binCount = 0;
+                nextGridNs += GRID_NS;
+                push(value, timestamp);
+            }
+            binSum += magnitude;
+            binCount++;
+            lastTimestamp = timestamp;
+            lastMagnitude = magnitude;
+
+            if (periodNs > 0) {
+                // 每个样本最多计一步：补计的步数在随后的样本中逐个释放，逐样本接口也不会丢
+                phase += dt / periodNs;
+                if (phase >= 1f) {
+                    phase -= 1f;
+                    if (steps < outCapacity) {
+                        outStepTimestamps[steps] = timestamp;
+                    }
+                    steps++;
+                }
+            }
+        }
+        return steps;
+    }
+
+    private void push(float value, long timestamp) {
+        final int capacity = ring.length;
+        ring[head] = value;
+        head = head + 1 == capacity ? 0 : head + 1;
+        if (size < capacity) size++;
+        if (size == capacity && ++sinceEstimate >= hop) {
+            sinceEstimate = 0;
+            estimate(timestamp);
+        }
+    }
+
+    // 重新估计步频；返回前更新 periodNs / phase / 静止状态
+    private void estimate(long timestamp) {
+        final int w = ring.length;
+        float mean = 0;
+        for (int k = 0, idx = head; k < w; k++) {
+            float v = ring[idx];
+            linear[k] = v;
+            mean += v;
+            idx = idx + 1 == w ? 0 : idx + 1;
+        }
+        mean /= w;
+        float energy = 0;
+        for (int k = 0; k < w; k++) {
+            float v = linear[k] - mean;
+            linear[k] = v;
+            energy += v * v;
+        }
+
+        // 静止判断与其它引擎一致：窗口方差低于阈值并持续一段时间
+        float variance = energy / w;
+        if (variance < stillnessThreshold) {
+            if (timestamp - lastMovementTime > stillnessTime) {
+                isDeviceStill = true;
+            }
+            stopWalking(timestamp);
+            return;
+        }
+        lastMovementTime = timestamp;
+        isDeviceStill = false;
+
+        int minLag = Math.max(2, (int) (minStepInterval / GRID_MS));
+        int maxLag = Math.min(w / 2, (int) Math.ceil(maxStepInterval / GRID_MS));
+        if (minLag + 1 >= maxLag) {
+            stopWalking(timestamp);
+            return;
+        }
+        for (int lag = minLag - 1; lag <= maxLag + 1 && lag < correlation.length; lag++) {
+            float sum = 0;
+            float head2 = 0;
+            float tail2 = 0;
+            for (int k = 0; k + lag < w; k++) {
+                float a = linear[k];
+                float b = linear[k + lag];
+                sum += a * b;
+                head2 += a * a;
+                tail2 += b * b;
+            }
+            float norm = (float) Math.sqrt(head2 * tail2);
+            correlation[lag] = norm > 0 ? sum / norm : 0;
+        }
+
+        // 第一个超过阈值的局部极大值，避免选中两步（一个跨步）的周期
+        int best = -1;
+        for (int lag = minLag; lag <= maxLag && lag + 1 < correlation.length; lag++) {
+            float c = correlation[lag];
+            if (c >= minScore && c >= correlation[lag - 1] && c >= correlation[lag + 1]) {
+                best = lag;
+                break;
+            }
+        }
+        if (best < 0) {
+            stopWalking(timestamp);
+            return;
+        }
+
+        // 抛物线插值得到亚样本精度的周期
+        float left = correlation[best - 1];
+        float mid = correlation[best];
+        float right = correlation[best + 1];
+        float denominator = left - 2 * mid + right;
+        float offset = denominator < 0 ? 0.5f * (left - right) / denominator : 0;
+        float newPeriod = (best + offset) * GRID_NS;
+
+        if (periodNs == 0) {
+            // 刚进入周期运动：补计窗口内（但不早于上次停止时）已经走过的步数
+            long missed = Math.min(w * GRID_NS, timestamp - walkingEndTime);
+            phase = missed / newPeriod;
+        }
+        periodNs = newPeriod;
+        score = mid;
+    }
+
+    private void stopWalking(long timestamp) {
+        if (periodNs > 0) {
+            walkingEndTime = timestamp;
+        }
+        periodNs = 0;
+        phase = 0;
+        score = 0;
+    }
+
+    @Override
+    public float getCadenceHz() {
+        return periodNs > 0 ? 1e9f / periodNs : 0f;
+    }
+
+    // 相关系数峰值与判定阈值之比
+    @Override
+    public float getSignalQuality() {
+        return score / minScore;
+    }
+
+    @Override
+    public boolean isDeviceStill() {
+        return isDeviceStill;
+    }
+
+    @Override
+    public void reset() {
+        head = 0;
+        size = 0;
+        sinceEstimate = 0;
+        nextGridNs = 0;
+        binSum = 0;
+        binCount = 0;
+        lastTimestamp = Long.MIN_VALUE;
+        lastMagnitude = 0;
+        periodNs = 0;
+        score = 0;
+        phase = 0;
+        walkingEndTime = Long.MIN_VALUE / 2;
+        lastMovementTime = 0;
+        isDeviceStill = false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.stepcounter;
+
+/**
+ * 二阶 IIR 节（biquad），系数按 RBJ Audio EQ Cookbook 计算，转置直接 II 型实现。
+ * 状态为两个 float，process() 不分配对象。
+ */
+public final class BiquadFilter {
+    // Butterworth 品质因数
+    public static final float BUTTERWORTH_Q = 0.70710678f;
+
+    private enum Type {
+        LOW_PASS, HIGH_PASS
+    }
+
+    private final Type type;
+    private final float frequencyHz;
+    private final float q;
+    private float b0;
+    private float b1;
+    private float b2;
+    private float a1;
+    private float a2;
+    private float z1 = 0;
+    private float z2 = 0;
+
+    private BiquadFilter(Type type, float sampleRateHz, float frequencyHz, float q) {
+        this.type = type;
+        this.frequencyHz = frequencyHz;
+        this.q = q;
+        setSampleRate(sampleRateHz);
+    }
+
+    public static BiquadFilter lowPass(float sampleRateHz, float cutoffHz, float q) {
+        return new BiquadFilter(Type.LOW_PASS, sampleRateHz, cutoffHz, q);
+    }
+
+    public static BiquadFilter highPass(float sampleRateHz, float cutoffHz, float q) {
+        return new BiquadFilter(Type.HIGH_PASS, sampleRateHz, cutoffHz, q);
+    }
+
+    /**
+     * 按新的采样率重新计算系数，截止频率不变。状态保留，
+     * 采样率变化较大时调用方应随后 reset() 以避免瞬态。
+     */
+    public void setSampleRate(float sampleRateHz) {
+        // 截止频率不能超过奈奎斯特频率
+        double w0 = 2 * Math.PI * Math.min(frequencyHz, 0.45f * sampleRateHz) / sampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        switch (type) {
+            case LOW_PASS:
+                setCoefficients((1 - cos) / 2, 1 - cos, (1 - cos) / 2,
+                        1 + alpha, -2 * cos, 1 - alpha);
+                break;
+            case HIGH_PASS:
+                setCoefficients((1 + cos) / 2, -(1 + cos), (1 + cos) / 2,
+                        1 + alpha, -2 * cos, 1 - alpha);
+                break;
+        }
+    }
+
+    private void setCoefficients(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = (float) (b0 / a0);
+        this.b1 = (float) (b1 / a0);
+        this.b2 = (float) (b2 / a0);
+        this.a1 = (float) (a1 / a0);
+        this.a2 = (float) (a2 / a0);
+    }
+
+    public float process(float x) {
+        float y = b0 * x + z1;
+        z1 = b1 * x - a1 * y + z2;
+        z2 = b2 * x - a2 * y;
+        return y;
+    }
+
+    // 把状态置为输入恒为 x 时的稳态，避免从 0 开始的启动瞬态
+    public void reset(float x) {
+        float y = dcGain() * x;
+        z1 = y - b0 * x;
+        z2 = b2 * x - a2 * y;
+    }
+
+    public float dcGain() {
+        return (b0 + b1 + b2) / (1 + a1 + a2);
+    }
+}
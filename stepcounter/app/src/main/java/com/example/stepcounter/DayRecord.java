@@ -0,0 +1,30 @@
+package com.example.stepcounter;
+
+// 一天的步数记录（不可变），历史列表的一项
+public final class DayRecord {
+    public final String date;
+    public final int steps;
+
+    public DayRecord(String date, int steps) {
+        this.date = date;
+        this.steps = steps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DayRecord)) return false;
+        DayRecord other = (DayRecord) o;
+        return steps == other.steps && date.equals(other.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return date.hashCode() * 31 + steps;
+    }
+
+    @Override
+    public String toString() {
+        return date + "=" + steps;
+    }
+}
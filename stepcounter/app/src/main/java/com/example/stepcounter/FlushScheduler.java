@@ -0,0 +1,98 @@
+package com.example.stepcounter;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * 自适应的持久化调度，替代固定周期的保存线程。
+ *
+ * 只有存在未写入的步数（脏数据）时才写入；不单独定时唤醒，而是借助已有的唤醒时机
+ * ——传感器批次投递结束和每分钟的 ACTION_TIME_TICK——检查是否到期。
+ * 亮屏时间隔最短，灭屏和静止时逐级放宽；兜底的延迟任务保证脏数据最迟 MAX_DEFER_MS 后写入
+ * （Handler 延迟任务不会唤醒休眠的设备，会在下一次唤醒时执行）。
+ * 步数已写入映射日志，推迟写入不会因进程被杀而丢失数据。
+ * 所有方法都在传感器线程上调用。
+ */
+public class FlushScheduler {
+    private static final long SCREEN_ON_INTERVAL_MS = 30 * 1000;
+    private static final long SCREEN_OFF_INTERVAL_MS = 2 * 60 * 1000;
+    private static final int STILL_MULTIPLIER = 4;
+    private static final long MAX_DEFER_MS = 15 * 60 * 1000;
+
+    private final Handler handler;
+    private final StepRepository repository;
+    private final Runnable deadlineRunnable = this::onDeadline;
+
+    private boolean screenOn = true;
+    private boolean still = false;
+    private boolean deadlineScheduled = false;
+    private long lastFlushTime;
+
+    // 统计：实际写入次数、因无变化而跳过的检查次数
+    private long flushCount = 0;
+    private long skippedCount = 0;
+
+    public FlushScheduler(Handler handler, StepRepository repository) {
+        this.handler = handler;
+        this.repository = repository;
+        this.lastFlushTime = SystemClock.elapsedRealtime();
+    }
+
+    public void setScreenOn(boolean on) {
+        screenOn = on;
+    }
+
+    public void setStill(boolean isStill) {
+        still = isStill;
+    }
+
+    // 记录了新的步数：确保兜底写入已安排
+    public void onStepsRecorded() {
+        if (!deadlineScheduled) {
+            deadlineScheduled = true;
+            handler.postDelayed(deadlineRunnable, MAX_DEFER_MS);
+        }
+    }
+
+    // 已有的唤醒时机：有脏数据且已到期时写入
+    public void onOpportunity() {
+        if (!repository.hasPendingWrites()) {
+            skippedCount++;
+            return;
+        }
+        if (SystemClock.elapsedRealtime() - lastFlushTime >= currentInterval()) {
+            flushNow();
+        }
+    }
+
+    // 立即写入（日期变更、内存紧张、服务销毁）
+    public void flushNow() {
+        handler.removeCallbacks(deadlineRunnable);
+        deadlineScheduled = false;
+        lastFlushTime = SystemClock.elapsedRealtime();
+        if (!repository.hasPendingWrites()) {
+            skippedCount++;
+            return;
+        }
+        flushCount++;
+        repository.flushNow();
+    }
+
+    public long currentInterval() {
+        long interval = screenOn ? SCREEN_ON_INTERVAL_MS : SCREEN_OFF_INTERVAL_MS;
+        if (still) {
+            interval *= STILL_MULTIPLIER;
+        }
+        return Math.min(interval, MAX_DEFER_MS);
+    }
+
+    public String summary() {
+        return "flushes=" + flushCount + " skipped=" + skippedCount
+                + " interval=" + currentInterval() / 1000 + "s";
+    }
+
+    private void onDeadline() {
+        deadlineScheduled = false;
+        flushNow();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.stepcounter;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 全部历史记录：按页从进程共享的 StepRepository 加载（见 HistoryPager），不依赖计步服务是否在运行，
+// 查询都在后台线程上执行
+public class HistoryActivity extends AppCompatActivity {
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+    private RecyclerView rvHistory;
+    private TextView tvEmpty;
+    private LinearLayoutManager layoutManager;
+    private HistoryAdapter adapter;
+    private HistoryPager pager;
+    private SettingsRepository settings;
+    // 距离和热量按身高体重换算，等设置加载完成后再创建列表
+    private final SettingsRepository.Listener settingsListener = this::onSettingsLoaded;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_history);
+
+        settings = SettingsRepository.get(this);
+        layoutManager = new LinearLayoutManager(this);
+        tvEmpty = findViewById(R.id.tvEmpty);
+        rvHistory = findViewById(R.id.rvHistory);
+        rvHistory.setLayoutManager(layoutManager);
+        rvHistory.setHasFixedSize(true);
+        rvHistory.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        rvHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                requestPages();
+            }
+        });
+
+        Context app = getApplicationContext();
+        pager = new HistoryPager(new HistoryPager.Source() {
+            // 后台线程：首次调用 get() 时会打开数据库
+            @Override
+            public List<DayRecord> loadBefore(String date, int limit) {
+                return StepRepository.get(app).loadDaysBefore(date, limit);
+            }
+
+            @Override
+            public List<DayRecord> loadAfter(String date, int limit) {
+                return StepRepository.get(app).loadDaysAfter(date, limit);
+            }
+        }, pageExecutor, this::runOnUiThread, items -> {
+            tvEmpty.setVisibility(items.isEmpty() ? View.VISIBLE : View.GONE);
+            // 合并完成后再检查一次：一页不足一屏时继续加载
+            adapter.submitList(items, this::requestPages);
+        });
+    }
+
+    private void onSettingsLoaded(StepSettings current) {
+        // 只在第一次回调时创建；从后台返回时保留已加载的页和滚动位置
+        if (adapter != null) {
+            return;
+        }
+        adapter = new HistoryAdapter(current.heightCm, current.weightKg);
+        rvHistory.setAdapter(adapter);
+        pager.refresh();
+    }
+
+    private void requestPages() {
+        pager.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                layoutManager.findLastVisibleItemPosition());
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        settings.addListener(settingsListener);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        settings.removeListener(settingsListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pageExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.stepcounter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+// 历史记录列表：ListAdapter 在后台线程比较新旧列表，只刷新变化的行
+public class HistoryAdapter extends ListAdapter<DayRecord, HistoryAdapter.ViewHolder> {
+    // 热量估算：每公里每千克体重约 1.036 千卡
+    private static final float KCAL_PER_KG_KM = 1.036f;
+
+    private static final DiffUtil.ItemCallback<DayRecord> DIFF = new DiffUtil.ItemCallback<DayRecord>() {
+        @Override
+        public boolean areItemsTheSame(DayRecord oldItem, DayRecord newItem) {
+            return oldItem.date.equals(newItem.date);
+        }
+
+        @Override
+        public boolean areContentsTheSame(DayRecord oldItem, DayRecord newItem) {
+            return oldItem.steps == newItem.steps;
+        }
+    };
+
+    private final float strideKm;
+    private final float weightKg;
+
+    // 步长按身高的 0.415 倍估算
+    public HistoryAdapter(float heightCm, float weightKg) {
+        super(DIFF);
+        this.strideKm = heightCm * 0.415f / 100_000f;
+        this.weightKg = weightKg;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvDate;
+        final TextView tvSteps;
+        final TextView tvDistance;
+        final TextView tvCalories;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tvDate = itemView.findViewById(R.id.tvDate);
+            tvSteps = itemView.findViewById(R.id.tvSteps);
+            tvDistance = itemView.findViewById(R.id.tvDistance);
+            tvCalories = itemView.findViewById(R.id.tvCalories);
+        }
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.list_item_history, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        DayRecord day = getItem(position);
+        float km = day.steps * strideKm;
+        holder.tvDate.setText(day.date);
+        holder.tvSteps.setText(String.format(Locale.getDefault(), "%,d 步", day.steps));
+        holder.tvDistance.setText(String.format(Locale.getDefault(), "%.2f 公里", km));
+        holder.tvCalories.setText(String.format(Locale.getDefault(), "%.0f 千卡",
+                km * weightKg * KCAL_PER_KG_KM));
+    }
+}
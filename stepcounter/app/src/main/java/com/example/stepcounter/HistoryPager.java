@@ -0,0 +1,131 @@
+package com.example.stepcounter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 历史记录的分页加载：列表按日期倒序，以首尾记录的日期为游标（键集分页）向两端按页加载，
+ * 每页是一次带 LIMIT 的范围查询，不需要 OFFSET 跳过前面的行。
+ *
+ * 内存中最多保留 MAX_ITEMS 条，超出时丢弃离可见区域最远的一端，之后滚动回去再重新加载，
+ * 因此无论有多少年的数据占用都不变。
+ *
+ * 查询在后台 Executor 上执行，结果回到主线程 Executor 上合并，每次发布一个新的不可变列表
+ * （交给 ListAdapter 做差异比较）。同一时刻只有一个加载在进行，除构造外的方法只在主线程上调用。
+ */
+public class HistoryPager {
+    public interface Source {
+        // 早于 date 的最多 limit 天，按日期倒序；date 为 null 时从最新一天开始
+        List<DayRecord> loadBefore(String date, int limit);
+        // 晚于 date 的最多 limit 天，按日期倒序
+        List<DayRecord> loadAfter(String date, int limit);
+    }
+
+    public interface Listener {
+        void onChanged(List<DayRecord> items);
+    }
+
+    static final int PAGE_SIZE = 60;
+    static final int MAX_ITEMS = 5 * PAGE_SIZE;
+    // 可见区域距已加载的一端不足该条数时加载下一页
+    static final int PREFETCH_DISTANCE = 20;
+
+    private final Source source;
+    private final Executor background;
+    private final Executor main;
+    private final Listener listener;
+
+    private List<DayRecord> items = Collections.emptyList();
+    private boolean loading = false;
+    private boolean started = false;
+    // 已到达最早 / 最新的一天
+    private boolean reachedOldest = false;
+    private boolean reachedNewest = true;
+    private long generation = 0;
+
+    public HistoryPager(Source source, Executor background, Executor main, Listener listener) {
+        this.source = source;
+        this.background = background;
+        this.main = main;
+        this.listener = listener;
+    }
+
+    public List<DayRecord> getItems() {
+        return items;
+    }
+
+    // 从最新一天开始重新加载（数据被清除或修改后调用）
+    public void refresh() {
+        generation++;
+        items = Collections.emptyList();
+        reachedOldest = false;
+        reachedNewest = true;
+        loading = false;
+        started = true;
+        loadOlder();
+    }
+
+    // 列表滚动时传入可见范围，接近已加载的一端时加载下一页
+    public void onVisibleRange(int first, int last) {
+        if (!started || loading) {
+            return;
+        }
+        if (!reachedOldest && last >= items.size() - PREFETCH_DISTANCE) {
+            loadOlder();
+        } else if (!reachedNewest && first < PREFETCH_DISTANCE) {
+            loadNewer();
+        }
+    }
+
+    private void loadOlder() {
+        String cursor = items.isEmpty() ? null : items.get(items.size() - 1).date;
+        load(() -> source.loadBefore(cursor, PAGE_SIZE), true);
+    }
+
+    private void loadNewer() {
+        load(() -> source.loadAfter(items.get(0).date, PAGE_SIZE), false);
+    }
+
+    private interface Query {
+        List<DayRecord> run();
+    }
+
+    private void load(Query query, boolean older) {
+        loading = true;
+        long requested = generation;
+        background.execute(() -> {
+            List<DayRecord> page = query.run();
+            main.execute(() -> {
+                if (requested == generation) {
+                    merge(page, older);
+                }
+            });
+        });
+    }
+
+    private void merge(List<DayRecord> page, boolean older) {
+        loading = false;
+        List<DayRecord> next = new ArrayList<>(Math.min(items.size() + page.size(), MAX_ITEMS));
+        if (older) {
+            reachedOldest = page.size() < PAGE_SIZE;
+            int drop = Math.max(0, items.size() + page.size() - MAX_ITEMS);
+            next.addAll(items.subList(drop, items.size()));
+            next.addAll(page);
+            if (drop > 0) {
+                reachedNewest = false;
+            }
+        } else {
+            reachedNewest = page.size() < PAGE_SIZE;
+            int keep = Math.min(items.size(), MAX_ITEMS - page.size());
+            next.addAll(page);
+            next.addAll(items.subList(0, keep));
+            if (keep < items.size()) {
+                reachedOldest = false;
+            }
+        }
+        items = Collections.unmodifiableList(next);
+        listener.onChanged(items);
+    }
+}
@@ -4,8 +4,6 @@ package com.example.stepcounter;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.Bundle;
 import android.view.View;
@@ -39,9 +37,10 @@ public class MainActivity extends AppCompatActivity {
 
     private static final int PERMISSION_REQUEST_CODE = 1001;
 
-    // 添加共享偏好设置
-    private SharedPreferences sharedPreferences;
-    private static final String PREFS_NAME = "PedometerSettings";
+    // 设置快照（后台加载，不在主线程上解析 SharedPreferences）
+    private SettingsRepository settings;
+    private boolean fullyDrawnReported = false;
+    private final SettingsRepository.Listener settingsListener = this::restoreTodaySteps;
 
     private final BroadcastReceiver stepReceiver = new BroadcastReceiver() {
         @Override
@@ -52,10 +51,7 @@ public class MainActivity extends AppCompatActivity {
                     currentSteps = newSteps;
                     updateStepDisplay(currentSteps);
                     statusText.setText("实时步数: " + currentSteps);
-                    Log.d(TAG, "步数更新: " + currentSteps);
-
-                    // 更新设置活动中的今日步数
-                    updateTodaySteps(currentSteps);
+                    StepLog.d(TAG, "步数更新: {}", currentSteps);
 
                     // 前几步显示Toast提示
                     if (currentSteps <= 5) {
@@ -71,10 +67,10 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
-        Log.d(TAG, "Activity创建");
+        StepLog.d(TAG, "Activity创建");
 
-        // 初始化共享偏好设置
-        sharedPreferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        // 首次获取时开始在后台加载设置
+        settings = SettingsRepository.get(this);
 
         initializeViews();
         setupClickListeners();
@@ -136,7 +132,7 @@ public class MainActivity extends AppCompatActivity {
         if (requestCode == PERMISSION_REQUEST_CODE) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 Toast.makeText(this, "计步权限已授予", Toast.LENGTH_SHORT).show();
-                Log.d(TAG, "权限授予成功");
+                StepLog.d(TAG, "权限授予成功");
             } else {
                 Toast.makeText(this, "需要计步权限才能使用完整功能", Toast.LENGTH_LONG).show();
                 Log.w(TAG, "权限被拒绝");
@@ -154,7 +150,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void startStepCounting() {
         try {
-            Log.d(TAG, "启动计步服务");
+            StepLog.d(TAG, "启动计步服务");
             Intent serviceIntent = new Intent(this, StepCounterService.class);
 
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -176,7 +172,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void stopStepCounting() {
         try {
-            Log.d(TAG, "停止计步服务");
+            StepLog.d(TAG, "停止计步服务");
             Intent serviceIntent = new Intent(this, StepCounterService.class);
             stopService(serviceIntent);
 
@@ -195,7 +191,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void resetStepCount() {
-        Log.d(TAG, "重置步数");
+        StepLog.d(TAG, "重置步数");
         currentSteps = 0;
         updateStepDisplay(0);
         statusText.setText("步数已重置");
@@ -213,12 +209,10 @@ public class MainActivity extends AppCompatActivity {
         stepCountText.setText(String.valueOf(steps));
     }
 
-    // 新增方法：更新今日步数到共享偏好设置
+    // 新增方法：更新今日步数到设置
     private void updateTodaySteps(int steps) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putInt("today_steps", steps);
-        editor.apply();
-        Log.d(TAG, "更新今日步数: " + steps);
+        settings.update(s -> s.withTodaySteps(steps));
+        StepLog.d(TAG, "更新今日步数: {}", steps);
     }
 
     // 新增方法：保存每日记录
@@ -228,37 +222,42 @@ public class MainActivity extends AppCompatActivity {
         String today = sdf.format(new java.util.Date());
 
         // 保存今天的步数
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putInt("today_steps", currentSteps);
-        editor.putString("last_update_date", today);
-        editor.apply();
+        updateTodaySteps(currentSteps);
 
-        Log.d(TAG, "保存每日记录: " + currentSteps + " 步, 日期: " + today);
+        StepLog.d(TAG, "保存每日记录: {} 步, 日期: {}", currentSteps, today);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        Log.d(TAG, "Activity恢复");
-        // 注册广播接收器
-        IntentFilter filter = new IntentFilter(StepCounterService.ACTION_STEP_UPDATE);
-        LocalBroadcastManager.getInstance(this).registerReceiver(stepReceiver, filter);
-
-        // 恢复时从共享偏好设置加载今日步数
-        int savedSteps = sharedPreferences.getInt("today_steps", 0);
-        if (savedSteps > 0) {
-            currentSteps = savedSteps;
+        StepLog.d(TAG, "Activity恢复");
+        // 注册广播接收器（经由发布端登记，没有接收器时服务不发送广播）
+        StepUpdatePublisher.registerReceiver(this, stepReceiver);
+
+        // 恢复时从设置加载今日步数（设置加载完成后由监听器回调）
+        settings.addListener(settingsListener);
+    }
+
+    private void restoreTodaySteps(StepSettings current) {
+        if (currentSteps == 0 && current.todaySteps > 0) {
+            currentSteps = current.todaySteps;
             updateStepDisplay(currentSteps);
             statusText.setText("恢复步数: " + currentSteps);
         }
+        // 第一次收到设置时界面上的步数和目标都已就绪，供启动测量（TTFD）使用
+        if (!fullyDrawnReported) {
+            fullyDrawnReported = true;
+            reportFullyDrawn();
+        }
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        Log.d(TAG, "Activity暂停");
+        StepLog.d(TAG, "Activity暂停");
         // 解注册广播接收器
-        LocalBroadcastManager.getInstance(this).unregisterReceiver(stepReceiver);
+        StepUpdatePublisher.unregisterReceiver(this, stepReceiver);
+        settings.removeListener(settingsListener);
 
         // 暂停时保存当前步数
         updateTodaySteps(currentSteps);
@@ -267,7 +266,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        Log.d(TAG, "Activity销毁");
+        StepLog.d(TAG, "Activity销毁");
         // 停止服务
         if (isCounting) {
             stopStepCounting();
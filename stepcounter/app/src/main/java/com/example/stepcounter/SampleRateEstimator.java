@@ -0,0 +1,56 @@
+package com.example.stepcounter;
+
+/**
+ * 根据传感器事件时间戳（纳秒，单调递增）估计实际采样率。
+ * 请求的采样率只是建议值，各设备实际频率、抖动和批量投递方式差异很大，
+ * 滤波系数和按样本数计的窗口都应按实测值设计。
+ *
+ * 批量（FIFO）投递时同一批样本的时间戳仍是各自的采集时间，可以直接使用；
+ * 重复或倒退的时间戳以及超过 MAX_GAP_NS 的间隔（采样暂停、占空比休眠）不计入估计。
+ */
+public final class SampleRateEstimator {
+    private static final long MAX_GAP_NS = 1_000_000_000L;
+    // 预热阶段用算术平均，之后用指数平均跟踪采样率变化
+    private static final int WARMUP_INTERVALS = 8;
+    private static final double SMOOTHING = 0.05;
+    // 实测值偏离设计采样率超过该比例时才重新设计，避免随抖动反复重算
+    private static final float RETUNE_TOLERANCE = 0.1f;
+
+    private long lastTimestampNs = Long.MIN_VALUE;
+    private double intervalNs = 0;
+    private int intervals = 0;
+
+    public void add(long timestampNs) {
+        long last = lastTimestampNs;
+        lastTimestampNs = timestampNs;
+        if (last == Long.MIN_VALUE) {
+            return;
+        }
+        long dt = timestampNs - last;
+        if (dt <= 0 || dt > MAX_GAP_NS) {
+            return;
+        }
+        if (intervals < WARMUP_INTERVALS) {
+            intervals++;
+            intervalNs += (dt - intervalNs) / intervals;
+        } else {
+            intervalNs += SMOOTHING * (dt - intervalNs);
+        }
+    }
+
+    public float rateHz() {
+        return intervalNs > 0 ? (float) (1e9 / intervalNs) : 0f;
+    }
+
+    // 估计值可用且与按其设计滤波器的采样率相差超过容差
+    public boolean differsFrom(float designRateHz) {
+        return intervals >= WARMUP_INTERVALS
+                && Math.abs(rateHz() - designRateHz) > RETUNE_TOLERANCE * designRateHz;
+    }
+
+    public void reset() {
+        lastTimestampNs = Long.MIN_VALUE;
+        intervalNs = 0;
+        intervals = 0;
+    }
+}
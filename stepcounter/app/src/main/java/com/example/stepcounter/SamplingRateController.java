@@ -0,0 +1,145 @@
+package com.example.stepcounter;
+
+import java.util.Locale;
+
+/**
+ * 加速度采样率控制（功耗状态机处于 ACTIVE 时）：按检测引擎报告的步频和信号质量，
+ * 选择仍能分辨步伐的最低档位。每一步至少需要 SAMPLES_PER_STEP 个样本，
+ * 步频越高档位越高；信号弱（幅度接近检测门限）时用最高档，不丢失任何样本。
+ *
+ * 升档立即执行，避免漏步；降档要求更低档位在 DOWN_HOLD_MS 内一直够用，
+ * 且步频低于该档位上限的 DOWN_MARGIN 倍，避免在档位边界反复切换。
+ * 检测引擎按时间戳实测采样率，切换档位后无需重置。
+ *
+ * 时间由调用方传入 (SystemClock.elapsedRealtime)，统计各档位的累计采样时长。
+ * 非线程安全，在传感器线程上调用。
+ */
+public class SamplingRateController {
+    public enum Rate {
+        LOW(20), MEDIUM(32), FULL(50);
+
+        public final int hz;
+
+        Rate(int hz) {
+            this.hz = hz;
+        }
+
+        public int periodUs() {
+            return 1_000_000 / hz;
+        }
+
+        // 该档位能分辨的最高步频
+        float maxCadenceHz() {
+            return (float) hz / SAMPLES_PER_STEP;
+        }
+    }
+
+    public interface Actions {
+        // 以新的采样率重新注册加速度传感器
+        void setRate(Rate rate);
+    }
+
+    static final int SAMPLES_PER_STEP = 8;
+    static final float DOWN_MARGIN = 0.85f;
+    static final long DOWN_HOLD_MS = 15 * 1000;
+    // 信号质量（步伐幅度与检测门限之比）低于该值时按弱信号处理
+    static final float WEAK_SIGNAL_QUALITY = 1.5f;
+
+    private static final Rate[] RATES = Rate.values();
+
+    private final Actions actions;
+    private final long[] timeAtRate = new long[RATES.length];
+    private long changes = 0;
+
+    private Rate rate = Rate.FULL;
+    // 正在采样时为本段的开始时间，未采样时为 -1
+    private long samplingSince = -1;
+    // 更低档位开始够用的时间，-1 表示当前档位不能降
+    private long lowerSince = -1;
+
+    public SamplingRateController(Actions actions) {
+        this.actions = actions;
+    }
+
+    public Rate getRate() {
+        return rate;
+    }
+
+    // 开始/停止全速采样（功耗状态机的 ACTIVE 进出），只用于时长统计
+    public void setSampling(boolean sampling, long nowElapsedMs) {
+        if (sampling == (samplingSince >= 0)) {
+            return;
+        }
+        if (sampling) {
+            samplingSince = nowElapsedMs;
+        } else {
+            timeAtRate[rate.ordinal()] += nowElapsedMs - samplingSince;
+            samplingSince = -1;
+        }
+        lowerSince = -1;
+    }
+
+    /**
+     * 每批样本处理完后调用。steps 为这一批检测到的步数，cadenceHz / signalQuality
+     * 来自检测引擎；这一批没有步伐时视为没在走，逐步降到最低档。
+     */
+    public void onBatch(int steps, float cadenceHz, float signalQuality, long nowElapsedMs) {
+        Rate wanted = steps > 0 ? requiredRate(cadenceHz, signalQuality) : Rate.LOW;
+        if (wanted.ordinal() > rate.ordinal()) {
+            change(wanted, nowElapsedMs);
+            return;
+        }
+        boolean lowerEnough = wanted.ordinal() < rate.ordinal() && (steps == 0
+                || cadenceHz <= DOWN_MARGIN * RATES[rate.ordinal() - 1].maxCadenceHz());
+        if (!lowerEnough) {
+            lowerSince = -1;
+        } else if (lowerSince < 0) {
+            lowerSince = nowElapsedMs;
+        } else if (nowElapsedMs - lowerSince >= DOWN_HOLD_MS) {
+            // 一次只降一档
+            change(RATES[rate.ordinal() - 1], nowElapsedMs);
+        }
+    }
+
+    static Rate requiredRate(float cadenceHz, float signalQuality) {
+        if (signalQuality < WEAK_SIGNAL_QUALITY) {
+            return Rate.FULL;
+        }
+        for (Rate r : RATES) {
+            if (cadenceHz <= r.maxCadenceHz()) {
+                return r;
+            }
+        }
+        return Rate.FULL;
+    }
+
+    public long getTimeAtRate(Rate r, long nowElapsedMs) {
+        long time = timeAtRate[r.ordinal()];
+        return r == rate && samplingSince >= 0 ? time + (nowElapsedMs - samplingSince) : time;
+    }
+
+    public long getChanges() {
+        return changes;
+    }
+
+    public String summary(long nowElapsedMs) {
+        StringBuilder sb = new StringBuilder("采样率:");
+        for (Rate r : RATES) {
+            sb.append(String.format(Locale.US, " %dHz %ds", r.hz, getTimeAtRate(r, nowElapsedMs) / 1000));
+        }
+        sb.append(String.format(Locale.US, " 切换%d次", changes));
+        return sb.toString();
+    }
+
+    private void change(Rate next, long nowElapsedMs) {
+        if (samplingSince >= 0) {
+            timeAtRate[rate.ordinal()] += nowElapsedMs - samplingSince;
+            samplingSince = nowElapsedMs;
+        }
+        // 降档后从此刻重新计时，升档后清除
+        lowerSince = next.ordinal() < rate.ordinal() ? nowElapsedMs : -1;
+        rate = next;
+        changes++;
+        actions.setRate(next);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.stepcounter;
+
+import java.util.Locale;
+
+/**
+ * 传感器批量投递统计。
+ * 一次投递（同一次唤醒中连续分发的一批事件）记为一次唤醒，用于估算每分钟唤醒次数和平均批大小。
+ * 时间由调用方传入 (SystemClock.elapsedRealtime)，便于在 JVM 上测试。
+ */
+public class SensorBatchStats {
+    private long startElapsedMs;
+    private long deliveries = 0;
+    private long samples = 0;
+    private int maxBatchSize = 0;
+    private int currentBatchSize = 0;
+
+    public SensorBatchStats(long nowElapsedMs) {
+        startElapsedMs = nowElapsedMs;
+    }
+
+    public void onSample() {
+        currentBatchSize++;
+    }
+
+    public boolean isBatchOpen() {
+        return currentBatchSize > 0;
+    }
+
+    // 当前批次的事件已全部处理完，返回这一批的事件数
+    public int endBatch() {
+        int size = currentBatchSize;
+        if (size == 0) {
+            return 0;
+        }
+        deliveries++;
+        samples += size;
+        maxBatchSize = Math.max(maxBatchSize, size);
+        currentBatchSize = 0;
+        return size;
+    }
+
+    public long getDeliveries() {
+        return deliveries;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public float averageBatchSize() {
+        return deliveries == 0 ? 0f : (float) samples / deliveries;
+    }
+
+    public float wakeupsPerMinute(long nowElapsedMs) {
+        long elapsed = nowElapsedMs - startElapsedMs;
+        return elapsed <= 0 ? 0f : deliveries * 60_000f / elapsed;
+    }
+
+    public void reset(long nowElapsedMs) {
+        startElapsedMs = nowElapsedMs;
+        deliveries = 0;
+        samples = 0;
+        maxBatchSize = 0;
+        currentBatchSize = 0;
+    }
+
+    public String summary(long nowElapsedMs) {
+        return String.format(Locale.US,
+                "唤醒 %.1f 次/分钟, 平均批大小 %.1f, 最大批 %d, 共 %d 次投递 / %d 个样本",
+                wakeupsPerMinute(nowElapsedMs), averageBatchSize(), maxBatchSize,
+                deliveries, samples);
+    }
+}
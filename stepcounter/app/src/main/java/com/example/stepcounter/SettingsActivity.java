@@ -1,25 +1,36 @@
 package com.example.stepcounter;
 
-import android.content.SharedPreferences;
+import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SettingsActivity extends AppCompatActivity {
 
     private EditText etWeight, etHeight, etDailyGoal;
-    private Button btnSave;
+    private Spinner spDetectorEngine;
+    private Button btnSave, btnHistory;
     private TextView tvTodaySteps, tvYesterdaySteps, tvDayBeforeSteps, tvStats;
 
-    private SharedPreferences sharedPreferences;
-    private static final String PREFS_NAME = "PedometerSettings";
+    private SettingsRepository settings;
+    private final SettingsRepository.Listener settingsListener = this::showSettings;
+    private boolean settingsShown = false;
+    // 当前统计所依据的每日目标，-1 表示需要重新加载
+    private int shownGoal = -1;
+
+    // 统计从进程共享的 StepRepository 汇总索引读取（计步服务没有运行时也可以），在后台线程上查询
+    private final ExecutorService statsExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -29,27 +40,44 @@ public class SettingsActivity extends AppCompatActivity {
         // 初始化视图
         initViews();
 
-        // 加载保存的设置
-        loadSettings();
-
-        // 加载历史记录
-        loadStepHistory();
-
         // 设置按钮点击事件
         setupButtonListeners();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // 设置加载完成后经由监听器显示，并按当时的目标加载统计
+        settings.addListener(settingsListener);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        settings.removeListener(settingsListener);
+        // 回到页面时重新加载统计
+        shownGoal = -1;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        statsExecutor.shutdownNow();
+    }
+
     private void initViews() {
         etWeight = findViewById(R.id.etWeight);
         etHeight = findViewById(R.id.etHeight);
         etDailyGoal = findViewById(R.id.etDailyGoal);
+        spDetectorEngine = findViewById(R.id.spDetectorEngine);
         btnSave = findViewById(R.id.btnSave);
+        btnHistory = findViewById(R.id.btnHistory);
         tvTodaySteps = findViewById(R.id.tvTodaySteps);
         tvYesterdaySteps = findViewById(R.id.tvYesterdaySteps);
         tvDayBeforeSteps = findViewById(R.id.tvDayBeforeSteps);
         tvStats = findViewById(R.id.tvStats);
 
-        sharedPreferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        settings = SettingsRepository.get(this);
     }
 
     private void setupButtonListeners() {
@@ -59,17 +87,39 @@ public class SettingsActivity extends AppCompatActivity {
                 saveSettings();
             }
         });
+
+        btnHistory.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(SettingsActivity.this, HistoryActivity.class));
+            }
+        });
     }
 
-    private void loadSettings() {
-        // 从SharedPreferences加载设置，如果没有则使用默认值
-        float weight = sharedPreferences.getFloat("weight", 70.0f);
-        float height = sharedPreferences.getFloat("height", 170.0f);
-        int dailyGoal = sharedPreferences.getInt("daily_goal", 10000);
+    private void showSettings(StepSettings current) {
+        // 输入框只在首次加载时填充，不覆盖正在编辑的内容
+        if (!settingsShown) {
+            etWeight.setText(String.valueOf(current.weightKg));
+            etHeight.setText(String.valueOf(current.heightCm));
+            etDailyGoal.setText(String.valueOf(current.dailyGoal));
+            spDetectorEngine.setSelection(engineIndex(current.detectorEngine));
+            settingsShown = true;
+        }
+        // 回到页面后的第一次回调以及目标变化时刷新统计
+        if (current.dailyGoal != shownGoal) {
+            shownGoal = current.dailyGoal;
+            loadStepHistory(current.dailyGoal);
+        }
+    }
 
-        etWeight.setText(String.valueOf(weight));
-        etHeight.setText(String.valueOf(height));
-        etDailyGoal.setText(String.valueOf(dailyGoal));
+    private static int engineIndex(String engine) {
+        String[] engines = StepDetectorFactory.engines();
+        for (int i = 0; i < engines.length; i++) {
+            if (engines[i].equals(engine)) {
+                return i;
+            }
+        }
+        return 0;
     }
 
     private void saveSettings() {
@@ -83,12 +133,12 @@ public class SettingsActivity extends AppCompatActivity {
                 return;
             }
 
-            // 保存到SharedPreferences
-            SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.putFloat("weight", weight);
-            editor.putFloat("height", height);
-            editor.putInt("daily_goal", dailyGoal);
-            editor.apply();
+            // 下拉项顺序与 StepDetectorFactory.engines() 一致
+            String engine = StepDetectorFactory.engines()[spDetectorEngine.getSelectedItemPosition()];
+
+            // 保存到设置快照，后台合并写入；计步服务的设置监听会在传感器线程上切换引擎
+            settings.update(s -> s.withBody(weight, height).withDailyGoal(dailyGoal)
+                    .withDetectorEngine(engine));
 
             Toast.makeText(this, "设置已保存", Toast.LENGTH_SHORT).show();
 
@@ -123,61 +173,43 @@ public class SettingsActivity extends AppCompatActivity {
         Toast.makeText(this, "健康信息: " + healthInfo, Toast.LENGTH_LONG).show();
     }
 
-    private void loadStepHistory() {
-        // 加载今天的步数（从主活动传递过来或从SharedPreferences读取）
-        int todaySteps = sharedPreferences.getInt("today_steps", 0);
-        int yesterdaySteps = sharedPreferences.getInt("yesterday_steps", 5240);
-        int dayBeforeSteps = sharedPreferences.getInt("day_before_steps", 7890);
-
-        tvTodaySteps.setText(todaySteps + " 步");
-        tvYesterdaySteps.setText(yesterdaySteps + " 步");
-        tvDayBeforeSteps.setText(dayBeforeSteps + " 步");
-
-        // 更新统计信息
-        updateStatistics(todaySteps, yesterdaySteps, dayBeforeSteps);
+    private void loadStepHistory(int goal) {
+        Context app = getApplicationContext();
+        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+        statsExecutor.execute(() -> {
+            StepRepository repository = StepRepository.get(app);
+            // 目标写入和统计查询依次排在同一个写线程上，统计一定按新目标判断今天是否达标
+            repository.setDailyGoal(goal, today);
+            StepRollups.Report report = repository.loadStatistics(today);
+            if (report != null) {
+                runOnUiThread(() -> showStatistics(report));
+            }
+        });
     }
 
-    private void updateStatistics(int today, int yesterday, int dayBefore) {
-        int total = today + yesterday + dayBefore;
-        int average = total / 3;
-        int dailyGoal = sharedPreferences.getInt("daily_goal", 10000);
-
-        int goalDays = 0;
-        if (today >= dailyGoal) goalDays++;
-        if (yesterday >= dailyGoal) goalDays++;
-        if (dayBefore >= dailyGoal) goalDays++;
-
-        float achievementRate = (goalDays * 100f) / 3;
-
-        String stats = String.format(Locale.getDefault(),
-                "最近3天统计:\n" +
-                        "总步数: %,d 步\n" +
-                        "平均每日: %,d 步\n" +
-                        "目标达成率: %.1f%%",
-                total, average, achievementRate);
-
+    private void showStatistics(StepRollups.Report report) {
+        if (isFinishing()) {
+            return;
+        }
+        tvTodaySteps.setText(report.today + " 步");
+        tvYesterdaySteps.setText(report.yesterday + " 步");
+        tvDayBeforeSteps.setText(report.dayBefore + " 步");
+
+        String stats = formatSummary("最近7天", report.last7) + "\n\n"
+                + formatSummary("最近30天", report.last30) + "\n\n"
+                + formatSummary("最近365天", report.last365) + "\n\n"
+                + String.format(Locale.getDefault(), "连续达标: %d 天", report.streak);
         tvStats.setText(stats);
     }
 
-    // 从主活动调用此方法来更新今天的步数
-    public static void updateTodaySteps(SharedPreferences sharedPreferences, int steps) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putInt("today_steps", steps);
-        editor.apply();
-    }
-
-    // 从主活动调用此方法来保存历史记录（每天结束时调用）
-    public static void saveDailyRecord(SharedPreferences sharedPreferences, int steps) {
-        // 获取当前日期
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(Calendar.getInstance().getTime());
-
-        // 保存今天的步数
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putInt("today_steps", steps);
-        editor.putString("last_update_date", today);
-        editor.apply();
-
-        // 这里可以添加逻辑来保存更久的历史记录
-        // 例如将昨天的数据移到前天的位置等
+    private String formatSummary(String title, StepRollups.Summary summary) {
+        return String.format(Locale.getDefault(),
+                "%s统计:\n" +
+                        "总步数: %,d 步\n" +
+                        "平均每日: %,d 步\n" +
+                        "单日最多: %,d 步\n" +
+                        "目标达成率: %.1f%% (%d 天)",
+                title, summary.steps, summary.average(), summary.bestDay,
+                summary.goalRate(), summary.goalDays);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+package com.example.stepcounter;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内唯一的设置来源。首次使用时在后台线程上读取 SharedPreferences（解析 XML），
+ * 之后服务和界面都读取同一个不可变快照 StepSettings，不再在主线程上访问 SharedPreferences。
+ *
+ * 修改立即生效：替换快照并在主线程上通知监听器；写入文件延后 WRITE_DELAY_MS 合并为一次提交，
+ * 在后台线程上执行。加载完成前的修改在加载后依次应用到读到的设置上。
+ *
+ * 每日目标以前分别存放在 StepGoalPrefs 和 PedometerSettings 中，加载时统一迁移到 PedometerSettings
+ * （两处都有时以设置页面保存的为准）。
+ */
+public final class SettingsRepository {
+    public interface Listener {
+        // 在主线程上调用：加载完成时一次，之后每次修改一次
+        void onSettingsChanged(StepSettings settings);
+    }
+
+    public interface Mutation {
+        StepSettings apply(StepSettings settings);
+    }
+
+    static final String PREFS_NAME = "PedometerSettings";
+    private static final String LEGACY_GOAL_PREFS = "StepGoalPrefs";
+    static final String KEY_WEIGHT = "weight";
+    static final String KEY_HEIGHT = "height";
+    static final String KEY_DAILY_GOAL = "daily_goal";
+    static final String KEY_TODAY_STEPS = "today_steps";
+    private static final long WRITE_DELAY_MS = 500;
+
+    private static SettingsRepository instance;
+
+    private final Context context;
+    private final ScheduledExecutorService io = new ScheduledThreadPoolExecutor(1,
+            r -> new Thread(r, "SettingsIO"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object lock = new Object();
+    private volatile StepSettings snapshot = StepSettings.DEFAULTS;
+    // 加载完成前收到的修改
+    private List<Mutation> pendingMutations = new ArrayList<>();
+    private boolean writeScheduled = false;
+    // 以下只在 io 线程上访问
+    private SharedPreferences prefs;
+    private StepSettings written;
+
+    public static synchronized SettingsRepository get(Context context) {
+        if (instance == null) {
+            instance = new SettingsRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SettingsRepository(Context context) {
+        this.context = context;
+        io.execute(this::load);
+    }
+
+    private void load() {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences legacy = context.getSharedPreferences(LEGACY_GOAL_PREFS, Context.MODE_PRIVATE);
+        int goal = prefs.getInt(KEY_DAILY_GOAL,
+                legacy.getInt(KEY_DAILY_GOAL, StepSettings.DEFAULT_DAILY_GOAL));
+        if (legacy.contains(KEY_DAILY_GOAL)) {
+            prefs.edit().putInt(KEY_DAILY_GOAL, goal).commit();
+            legacy.edit().remove(KEY_DAILY_GOAL).commit();
+        }
+        written = new StepSettings(
+                prefs.getFloat(KEY_WEIGHT, StepSettings.DEFAULT_WEIGHT_KG),
+                prefs.getFloat(KEY_HEIGHT, StepSettings.DEFAULT_HEIGHT_CM),
+                goal,
+                prefs.getString(StepDetectorFactory.KEY_DETECTOR_ENGINE, StepDetectorFactory.DEFAULT_ENGINE),
+                prefs.getInt(KEY_TODAY_STEPS, 0));
+        synchronized (lock) {
+            StepSettings settings = written;
+            for (Mutation mutation : pendingMutations) {
+                settings = mutation.apply(settings);
+            }
+            if (!pendingMutations.isEmpty()) {
+                scheduleWrite();
+            }
+            pendingMutations = null;
+            snapshot = settings;
+        }
+        loaded.countDown();
+        notifyListeners();
+    }
+
+    public boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    // 当前快照，加载完成前为默认值
+    public StepSettings getSnapshot() {
+        return snapshot;
+    }
+
+    // 等待加载完成后返回快照，只在后台线程上调用
+    public StepSettings awaitSnapshot() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return snapshot;
+    }
+
+    // 修改设置，可在任意线程上调用
+    public void update(Mutation mutation) {
+        synchronized (lock) {
+            if (pendingMutations != null) {
+                pendingMutations.add(mutation);
+                return;
+            }
+            StepSettings next = mutation.apply(snapshot);
+            if (next.equals(snapshot)) {
+                return;
+            }
+            snapshot = next;
+            scheduleWrite();
+        }
+        notifyListeners();
+    }
+
+    // 已加载时立即（经由主线程）收到当前快照
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (isLoaded()) {
+            mainHandler.post(() -> {
+                if (listeners.contains(listener)) {
+                    listener.onSettingsChanged(snapshot);
+                }
+            });
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // 立即写入尚未写入的修改（服务销毁时调用）
+    public void flush() {
+        io.execute(this::write);
+    }
+
+    private void notifyListeners() {
+        mainHandler.post(() -> {
+            StepSettings settings = snapshot;
+            for (Listener listener : listeners) {
+                listener.onSettingsChanged(settings);
+            }
+        });
+    }
+
+    private void scheduleWrite() {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            io.schedule(this::write, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // io 线程：把最新快照与上次写入的差异一次提交
+    private void write() {
+        StepSettings settings;
+        synchronized (lock) {
+            writeScheduled = false;
+            settings = snapshot;
+        }
+        if (settings == written) {
+            return;
+        }
+        SharedPreferences.Editor editor = prefs.edit();
+        if (settings.weightKg != written.weightKg) editor.putFloat(KEY_WEIGHT, settings.weightKg);
+        if (settings.heightCm != written.heightCm) editor.putFloat(KEY_HEIGHT, settings.heightCm);
+        if (settings.dailyGoal != written.dailyGoal) editor.putInt(KEY_DAILY_GOAL, settings.dailyGoal);
+        if (!settings.detectorEngine.equals(written.detectorEngine)) {
+            editor.putString(StepDetectorFactory.KEY_DETECTOR_ENGINE, settings.detectorEngine);
+        }
+        if (settings.todaySteps != written.todaySteps) editor.putInt(KEY_TODAY_STEPS, settings.todaySteps);
+        editor.commit();
+        written = settings;
+    }
+}
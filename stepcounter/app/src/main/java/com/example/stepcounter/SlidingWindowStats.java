@@ -0,0 +1,99 @@
+package com.example.stepcounter;
+
+/**
+ * 定长滑动窗口的均值/方差统计。
+ * 使用原始 float 环形缓冲区，配合滑动 Welford 更新，每个样本 O(1) 且不产生任何对象分配。
+ */
+public final class SlidingWindowStats {
+    // 每写满若干轮后按缓冲区精确重算一次，消除长时间运行累积的舍入误差
+    private static final int RESYNC_PERIOD = 4096;
+
+    private final float[] buffer;
+    private int head = 0;
+    private int size = 0;
+    private int sinceResync = 0;
+
+    // 以 double 保存运行状态，避免 float 累加误差
+    private double mean = 0;
+    private double m2 = 0;
+
+    public SlidingWindowStats(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        buffer = new float[capacity];
+    }
+
+    public void add(float value) {
+        if (size < buffer.length) {
+            // 窗口未满：标准 Welford 增量
+            buffer[head] = value;
+            size++;
+            double delta = value - mean;
+            mean += delta / size;
+            m2 += delta * (value - mean);
+        } else {
+            // 窗口已满：用新值替换最旧的值
+            float old = buffer[head];
+            buffer[head] = value;
+            double oldMean = mean;
+            // 差值按 double 计算，float 相减的舍入误差会在重算之间累积
+            double diff = (double) value - old;
+            mean += diff / size;
+            m2 += diff * (value - mean + old - oldMean);
+            if (m2 < 0) {
+                m2 = 0;
+            }
+        }
+        head++;
+        if (head == buffer.length) {
+            head = 0;
+        }
+        if (++sinceResync >= RESYNC_PERIOD) {
+            resync();
+        }
+    }
+
+    private void resync() {
+        sinceResync = 0;
+        double sum = 0;
+        for (int i = 0; i < size; i++) sum += buffer[i];
+        double newMean = sum / size;
+        double newM2 = 0;
+        for (int i = 0; i < size; i++) {
+            double d = buffer[i] - newMean;
+            newM2 += d * d;
+        }
+        mean = newMean;
+        m2 = newM2;
+    }
+
+    public boolean isFull() {
+        return size == buffer.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public float mean() {
+        return (float) mean;
+    }
+
+    // 总体方差（除以 n），与原先的两遍计算口径一致
+    public float variance() {
+        return size == 0 ? 0f : (float) (m2 / size);
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        sinceResync = 0;
+        mean = 0;
+        m2 = 0;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.stepcounter;
+
+/**
+ * 系统计步传感器 (TYPE_STEP_COUNTER) 读数到每日步数的换算。
+ *
+ * 计步传感器报告的是开机以来的累计步数，今日步数 = 读数 - 当日基线。
+ * 每次读数返回的增量 = (读数 - 基线) - 已计入今日的步数，已计入的步数来自存储层
+ * （含日志重放），因此进程被杀重启后不会重复计算。
+ * 跨天时新基线取上一次计入的读数；读数回退或开机次数变化说明设备重启过，
+ * 计数器从 0 重新开始，开机以来的步数全部计为新增。
+ * 基线变化后 consumeChanged() 返回 true，由调用方持久化。非线程安全。
+ */
+public class StepCounterBaseline {
+    public static final int UNKNOWN_BOOT = -1;
+
+    private String date;
+    private long baseline;
+    private int bootCount = UNKNOWN_BOOT;
+    private boolean valid = false;
+    private boolean changed = false;
+    private int rebootCount = 0;
+    // 最近一次已计入存储的计数器读数
+    private long accounted;
+
+    // 恢复持久化的基线；dayTotal 为基线所属日期已计入的步数
+    public void restore(String date, long baseline, int bootCount, int dayTotal) {
+        this.date = date;
+        this.baseline = baseline;
+        this.bootCount = bootCount;
+        this.accounted = baseline + dayTotal;
+        this.valid = true;
+    }
+
+    /**
+     * 处理一次计数器读数，返回应新增到今日的步数。
+     * @param todayTotal 今日已计入的步数
+     */
+    public int onCounter(long value, int currentBoot, String today, int todayTotal) {
+        if (!valid) {
+            // 首次使用：无法区分开机以来哪些步数属于今天，从当前读数开始计
+            rebase(today, value - todayTotal);
+        } else if (value < accounted || (currentBoot != UNKNOWN_BOOT
+                && bootCount != UNKNOWN_BOOT && currentBoot != bootCount)) {
+            rebootCount++;
+            rebase(today, -todayTotal);
+        } else if (!today.equals(date)) {
+            // 跨天：上一次计入的读数就是新一天的 0 点
+            rebase(today, accounted);
+        }
+        bootCount = currentBoot;
+
+        long delta = value - baseline - todayTotal;
+        if (delta < 0) {
+            // 今日步数被外部修改（如恢复了旧数据），以当前读数重新对齐
+            rebase(today, value - todayTotal);
+            delta = 0;
+        }
+        accounted = value;
+        return (int) delta;
+    }
+
+    // 用户清零今日步数：之后的读数从最近一次计入的读数开始计
+    public void resetDay(String today) {
+        if (valid) {
+            rebase(today, accounted);
+        }
+    }
+
+    public boolean consumeChanged() {
+        boolean result = changed;
+        changed = false;
+        return result;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public long getBaseline() {
+        return baseline;
+    }
+
+    public int getBootCount() {
+        return bootCount;
+    }
+
+    public int getRebootCount() {
+        return rebootCount;
+    }
+
+    private void rebase(String today, long newBaseline) {
+        date = today;
+        baseline = newBaseline;
+        valid = true;
+        changed = true;
+    }
+}
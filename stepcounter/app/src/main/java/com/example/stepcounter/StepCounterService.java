@@ -1,6 +1,6 @@
 package com.example.stepcounter;
 
-import android.app.Notification;
+import android.Manifest;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.Service;
@@ -8,26 +8,35 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.pm.PackageManager;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.Settings;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
-
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
-
-// 建议添加数据模型类和数据库工具类
-// 参考 DylanStepCount 中的 StepData 和 DbUtils 实现
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class StepCounterService extends Service implements SensorEventListener {
     private static final String TAG = "StepCounterService";
@@ -35,17 +44,82 @@ public class StepCounterService extends Service implements SensorEventListener {
     private static final int NOTIFICATION_ID = 1;
     public static final String ACTION_STEP_UPDATE = "STEP_UPDATE";
     public static final String EXTRA_STEP_COUNT = "step_count";
+    private static final String METRICS_FILE = "step_metrics.txt";
+    // dumpsys 等待传感器线程生成状态快照的最长时间
+    private static final long DUMP_TIMEOUT_MS = 2000;
 
     private SensorManager sensorManager;
     private Sensor accelerometer;
-    private StepDetectionAlgorithm stepDetector;
+    private Sensor stepCounterSensor;
+    // 加速度模式下静止时的低功耗唤醒源：显著运动（一次性触发）或步伐检测传感器
+    private Sensor significantMotionSensor;
+    private Sensor stepDetectorSensor;
+    private AccelPowerController powerController;
+    // 全速采样时按步频选择采样率档位
+    private SamplingRateController rateController;
+    private final Runnable powerTimerRunnable = () -> {
+        StepMetrics.PROBE_TIMERS.increment();
+        powerController.onTimer(SystemClock.elapsedRealtime());
+    };
+    private final TriggerEventListener motionTrigger = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            // 触发回调在主线程上，转到传感器线程处理
+            StepMetrics.WAKE_TRIGGERS.increment();
+            sensorHandler.post(() -> powerController.onWakeTrigger(SystemClock.elapsedRealtime()));
+        }
+    };
+    // 当前检测引擎，由设置中的 detector_engine 选择，只在传感器线程上替换
+    private StepDetector stepDetector;
+    private SettingsRepository settings;
+    // 已应用到检测引擎和汇总索引的设置（只在传感器线程上访问）
+    private String appliedEngine;
+    private int appliedGoal;
+    // 传感器线程上的初始化完成后打开
+    private static final int FIRST_SAMPLE_COOKIE = 1;
+    private long createdAtMs;
+    private boolean firstSampleSeen = false;
+    private final SettingsRepository.Listener settingsListener = this::applySettings;
     private PowerManager.WakeLock wakeLock;
-    private int totalSteps = 0;
+    // 步数在传感器线程上更新，其他线程只读取
+    private volatile int totalSteps = 0;
     private String currentDate;
 
+    // 传感器回调、检测算法和计数器都归属于该线程，主线程不处理逐样本的工作
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+    private StepUpdatePublisher publisher;
+
+    // 批量投递相关：传感器 FIFO 缓存样本，一次唤醒处理一整批
+    private static final int MAX_REPORT_LATENCY_SCREEN_ON_US = 1000 * 1000; // 亮屏 1 秒
+    private static final int MAX_REPORT_LATENCY_SCREEN_OFF_US = 10 * 1000 * 1000; // 灭屏 10 秒
+    private boolean batchingSupported = false;
+    private boolean screenOn = true;
+    private SensorBatchStats batchStats;
+    private boolean stepsDirty = false;
+    private final Runnable batchEndRunnable = this::onBatchEnd;
+    // 同一批的加速度样本先缓存，批次结束时一次交给 detectSteps；缓冲区满时提前处理
+    private static final int SAMPLE_BUFFER_SIZE = 256;
+    private final float[] sampleXyz = new float[SAMPLE_BUFFER_SIZE * 3];
+    private final long[] sampleTimestamps = new long[SAMPLE_BUFFER_SIZE];
+    private final long[] stepTimestamps = new long[SAMPLE_BUFFER_SIZE];
+    private int sampleCount = 0;
+    // 当前批次检测到的步数，供采样率控制判断是否在走
+    private int batchSteps = 0;
+    // 上一次每分钟广播时的步数，用于统计每分钟步数；-1 表示尚未开始
+    private int stepsAtLastTick = -1;
+
+    // 系统计步传感器模式：计数在传感器 hub 中完成，按长批次只投递累计读数，
+    // 读数是累计值，FIFO 溢出丢弃的中间读数不影响结果，因此不受 FIFO 容量限制
+    private static final int COUNTER_REPORT_LATENCY_SCREEN_ON_US = 2 * 1000 * 1000; // 亮屏 2 秒
+    private static final int COUNTER_REPORT_LATENCY_SCREEN_OFF_US = 5 * 60 * 1000 * 1000; // 灭屏 5 分钟
+    private volatile boolean useHardwareCounter = false;
+    private StepCounterBaseline counterBaseline;
+    private int bootCount = StepCounterBaseline.UNKNOWN_BOOT;
+
     // 数据存储相关
-    private static final int SAVE_INTERVAL = 30 * 1000; // 30秒保存一次
-    private SaveTimer saveTimer;
+    private FlushScheduler flushScheduler;
+    private StepRepository repository;
 
     private final IBinder binder = new StepCounterBinder();
 
@@ -55,23 +129,29 @@ public class StepCounterService extends Service implements SensorEventListener {
         public void onReceive(Context context, Intent intent) {
             String action = intent.getAction();
             if (Intent.ACTION_SCREEN_OFF.equals(action)) {
-                // 屏幕关闭时延长保存间隔
-                if (saveTimer != null) {
-                    saveTimer.setInterval(60 * 1000);
-                }
+                setScreenOn(false);
             } else if (Intent.ACTION_SCREEN_ON.equals(action) ||
                     Intent.ACTION_USER_PRESENT.equals(action)) {
-                // 屏幕开启或解锁时恢复保存间隔
-                if (saveTimer != null) {
-                    saveTimer.setInterval(SAVE_INTERVAL);
-                }
+                setScreenOn(true);
             } else if (Intent.ACTION_DATE_CHANGED.equals(action) ||
                     Intent.ACTION_TIME_TICK.equals(action)) {
-                // 日期变更时保存并重置步数
-                saveStepData();
-                if (!currentDate.equals(getTodayDate())) {
-                    resetSteps();
-                    currentDate = getTodayDate();
+                // 每分钟的系统广播本身就是一次唤醒，顺带检查是否需要写入
+                String today = getTodayDate();
+                if (!currentDate.equals(today)) {
+                    // 日期变更时先处理缓存中午夜前的样本（按样本时间计入前一天），
+                    // 再立即写入并从零开始新的一天
+                    processSamples();
+                    saveStepData();
+                    currentDate = today;
+                    totalSteps = 0;
+                    stepsAtLastTick = 0;
+                    publisher.publish(0);
+                } else {
+                    if (stepsAtLastTick >= 0) {
+                        StepMetrics.STEPS_PER_MINUTE.record(Math.max(0, totalSteps - stepsAtLastTick));
+                    }
+                    stepsAtLastTick = totalSteps;
+                    flushScheduler.onOpportunity();
                 }
             } else if ("RESET_STEPS".equals(action)) {
                 resetSteps();
@@ -88,35 +168,95 @@ public class StepCounterService extends Service implements SensorEventListener {
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "服务创建");
+        long start = System.nanoTime();
+        StepTrace.beginStartup(StepTrace.SERVICE_CREATE);
+        StepTrace.beginAsyncStartup(StepTrace.FIRST_SAMPLE, FIRST_SAMPLE_COOKIE);
+        createdAtMs = SystemClock.elapsedRealtime();
+        StepLog.d(TAG, "服务创建");
+        sensorThread = new HandlerThread("StepSensorThread", Process.THREAD_PRIORITY_BACKGROUND);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+        publisher = new StepUpdatePublisher(this, CHANNEL_ID, NOTIFICATION_ID, sensorHandler);
         currentDate = getTodayDate();
-        stepDetector = new StepDetectionAlgorithm();
-        initSensor();
-        initWakeLock();
+        settings = SettingsRepository.get(this);
+        // 主线程上只做前台通知需要的部分；传感器查询、数据库和日志文件、唤醒锁、广播接收器和今日数据
+        // 都在传感器线程上初始化，onStartCommand 投递的任务排在它之后
+        sensorHandler.post(this::initOnSensorThread);
+        settings.addListener(settingsListener);
         initNotification();
-        initBroadcastReceiver();
-        initSaveTimer();
-        loadTodayData(); // 加载今日数据
 
-        startForeground(NOTIFICATION_ID, createNotification());
+        startForeground(NOTIFICATION_ID, publisher.buildNotification(totalSteps));
+        StepTrace.endStartup();
+        StepMetrics.SERVICE_CREATE_NS.record(System.nanoTime() - start);
+    }
+
+    private void initOnSensorThread() {
+        long start = System.nanoTime();
+        StepTrace.beginStartup(StepTrace.SERVICE_INIT);
+        try {
+            // 等待设置加载完成（通常已经完成），检测引擎和汇总索引的重建需要它
+            StepSettings loaded = settings.awaitSnapshot();
+            appliedEngine = loaded.detectorEngine;
+            appliedGoal = loaded.dailyGoal;
+            stepDetector = StepDetectorFactory.create(appliedEngine);
+            batchStats = new SensorBatchStats(SystemClock.elapsedRealtime());
+            counterBaseline = new StepCounterBaseline();
+            bootCount = Settings.Global.getInt(getContentResolver(),
+                    Settings.Global.BOOT_COUNT, StepCounterBaseline.UNKNOWN_BOOT);
+            repository = StepRepository.get(this);
+            flushScheduler = new FlushScheduler(sensorHandler, repository);
+            initSensor();
+            powerController = new AccelPowerController(new PowerActions(), SystemClock.elapsedRealtime());
+            rateController = new SamplingRateController(this::onSamplingRateChanged);
+            initWakeLock();
+            initBroadcastReceiver();
+            loadTodayData(); // 加载今日数据
+        } finally {
+            StepTrace.endStartup();
+        }
+        StepMetrics.SERVICE_INIT_NS.record(System.nanoTime() - start);
     }
 
     private void initSensor() {
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
         if (sensorManager != null) {
-            // 优先使用计步传感器，没有则使用加速度传感器
-            Sensor stepCounter = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-            if (stepCounter != null) {
-                accelerometer = stepCounter;
-                Log.d(TAG, "使用计步传感器");
-            } else {
-                accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-                Log.d(TAG, "使用加速度传感器");
+            // 优先使用计步传感器，没有传感器或没有权限时使用加速度传感器 + 检测算法
+            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+            accelerometer = findAccelerometer();
+            useHardwareCounter = stepCounterSensor != null && hasActivityRecognitionPermission();
+            StepLog.d(TAG, useHardwareCounter ? "使用计步传感器" : "使用加速度传感器");
+            significantMotionSensor = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+            if (hasActivityRecognitionPermission()) {
+                stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+            }
+            batchingSupported = accelerometer != null && accelerometer.getFifoMaxEventCount() > 0;
+            StepLog.d(TAG, batchingSupported ? "批量投递: 支持" : "批量投递: 不支持");
+        }
+    }
+
+    // 支持 FIFO 批量时优先使用唤醒型加速度传感器，由传感器 hub 在批次到期时唤醒处理器
+    private Sensor findAccelerometer() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            Sensor wakeUp = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER, true);
+            if (wakeUp != null && wakeUp.getFifoMaxEventCount() > 0) {
+                return wakeUp;
             }
         }
+        return sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+    }
+
+    // Android 10 起读取计步传感器需要运行时权限
+    private boolean hasActivityRecognitionPermission() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || checkSelfPermission(Manifest.permission.ACTIVITY_RECOGNITION)
+                == PackageManager.PERMISSION_GRANTED;
     }
 
     private void initWakeLock() {
+        if (batchingSupported || useHardwareCounter || wakeLock != null) {
+            // 批量模式下由唤醒型传感器按批次唤醒，计步传感器模式下处理器可以休眠，无需常驻唤醒锁
+            return;
+        }
         PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
         if (powerManager != null) {
             wakeLock = powerManager.newWakeLock(
@@ -150,113 +290,311 @@ public class StepCounterService extends Service implements SensorEventListener {
         filter.addAction(Intent.ACTION_DATE_CHANGED);
         filter.addAction(Intent.ACTION_TIME_TICK);
         filter.addAction("RESET_STEPS");
-        registerReceiver(systemReceiver, filter);
-    }
-
-    private void initSaveTimer() {
-        saveTimer = new SaveTimer(SAVE_INTERVAL);
-        saveTimer.start();
+        // 接收器在传感器线程上回调，与检测状态同属一个线程
+        registerReceiver(systemReceiver, filter, null, sensorHandler);
     }
 
     private void loadTodayData() {
-        // 参考 DylanStepCount 中的 DbUtils 实现
-        // 从数据库加载今日步数
-        /*
-        List<StepData> dataList = DbUtils.getQueryByWhere(StepData.class,
-                "today", new String[]{currentDate});
-        if (dataList.size() > 0) {
-            totalSteps = Integer.parseInt(dataList.get(0).getStep());
-            stepDetector.reset();
-            // 同步检测器步数
-            for (int i = 0; i < totalSteps; i++) {
-                stepDetector.detectStep(new float[3], System.currentTimeMillis());
-            }
-        }
-        */
+        // 在传感器线程上加载今日步数（日汇总表主键查找 + 重放的日志增量），先于任何传感器事件执行
+        totalSteps += repository.loadDayTotal(currentDate);
+        repository.restoreCounterBaseline(counterBaseline);
+        StepLog.d(TAG, "加载今日步数: {}", totalSteps);
+        publisher.publish(totalSteps);
     }
 
     private void saveStepData() {
-        // 保存今日步数到数据库
-        /*
-        List<StepData> dataList = DbUtils.getQueryByWhere(StepData.class,
-                "today", new String[]{currentDate});
-        StepData stepData = new StepData();
-        stepData.setToday(currentDate);
-        stepData.setStep(String.valueOf(totalSteps));
-
-        if (dataList.size() > 0) {
-            stepData.setId(dataList.get(0).getId());
-            DbUtils.update(stepData);
-        } else {
-            DbUtils.insert(stepData);
-        }
-        */
+        // 写后缓冲：把内存中积攒的分钟增量批量写入数据库，平时的写入时机由 FlushScheduler 决定
+        flushScheduler.flushNow();
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        startStepDetection();
+        // 传感器注册状态只在传感器线程上修改
+        sensorHandler.post(this::startStepDetection);
         return START_STICKY;
     }
 
     private void startStepDetection() {
-        if (sensorManager != null && accelerometer != null) {
-            int delay = accelerometer.getType() == Sensor.TYPE_STEP_COUNTER ?
-                    SensorManager.SENSOR_DELAY_NORMAL :
-                    SensorManager.SENSOR_DELAY_GAME;
-            sensorManager.registerListener(this, accelerometer, delay);
+        if (sensorManager == null) {
+            return;
+        }
+        if (useHardwareCounter) {
+            sensorManager.unregisterListener(this, stepCounterSensor);
+            int latencyUs = screenOn ? COUNTER_REPORT_LATENCY_SCREEN_ON_US
+                    : COUNTER_REPORT_LATENCY_SCREEN_OFF_US;
+            if (sensorManager.registerListener(this, stepCounterSensor,
+                    SensorManager.SENSOR_DELAY_NORMAL, latencyUs, sensorHandler)) {
+                return;
+            }
+            Log.w(TAG, "计步传感器注册失败，改用加速度传感器");
+            useHardwareCounter = false;
+            initWakeLock();
+        }
+        if (accelerometer != null) {
+            sensorManager.unregisterListener(this, accelerometer);
+            // 静止休眠时不注册，由唤醒触发或探测定时器恢复
+            if (powerController.getState() == AccelPowerController.State.ACTIVE) {
+                registerAccelerometerFullRate();
+            } else if (powerController.getState() == AccelPowerController.State.PROBING) {
+                registerAccelerometerProbe();
+            }
+        }
+    }
+
+    private void registerAccelerometerFullRate() {
+        int periodUs = rateController.getRate().periodUs();
+        if (batchingSupported) {
+            int latencyUs = maxReportLatencyUs();
+            sensorManager.registerListener(this, accelerometer,
+                    periodUs, latencyUs, sensorHandler);
+            StepLog.d(TAG, "批量注册加速度传感器, samplingPeriod={}us, maxReportLatency={}us",
+                    periodUs, latencyUs);
+        } else {
+            sensorManager.registerListener(this, accelerometer, periodUs, sensorHandler);
+        }
+        rateController.setSampling(true, SystemClock.elapsedRealtime());
+    }
+
+    // 采样率档位变化：以新的采样周期重新注册。
+    // 缓存中的样本带有各自的时间戳，检测算法会按实测采样率重新设计滤波器，不需要重置
+    private void onSamplingRateChanged(SamplingRateController.Rate rate) {
+        if (useHardwareCounter || powerController.getState() != AccelPowerController.State.ACTIVE) {
+            return;
+        }
+        sensorManager.unregisterListener(this, accelerometer);
+        registerAccelerometerFullRate();
+        StepLog.d(TAG, "采样率切换为 {}Hz, 步频 {}Hz", rate.hz, stepDetector.getCadenceHz());
+    }
+
+    // 探测窗口：最低速率、不批量，尽快得出结论
+    private void registerAccelerometerProbe() {
+        sensorManager.registerListener(this, accelerometer,
+                SensorManager.SENSOR_DELAY_NORMAL, sensorHandler);
+    }
+
+    // 功耗状态机的传感器操作，全部在传感器线程上执行
+    private class PowerActions implements AccelPowerController.Actions {
+        @Override
+        public void startFullRate() {
+            sensorManager.unregisterListener(StepCounterService.this, accelerometer);
+            sampleCount = 0;
+            stepDetector.reset(); // 滤波和静止窗口中的旧数据已经过时
+            registerAccelerometerFullRate();
+            StepLog.d(TAG, "检测到运动，恢复全速采样");
+        }
+
+        @Override
+        public void startProbe() {
+            registerAccelerometerProbe();
+        }
+
+        @Override
+        public void stopAccelerometer() {
+            sensorManager.unregisterListener(StepCounterService.this, accelerometer);
+            rateController.setSampling(false, SystemClock.elapsedRealtime());
+        }
+
+        @Override
+        public boolean armWakeTrigger() {
+            if (significantMotionSensor != null
+                    && sensorManager.requestTriggerSensor(motionTrigger, significantMotionSensor)) {
+                StepLog.d(TAG, "持续静止，停止加速度采样，等待显著运动");
+                return true;
+            }
+            if (stepDetectorSensor != null && sensorManager.registerListener(
+                    StepCounterService.this, stepDetectorSensor,
+                    SensorManager.SENSOR_DELAY_NORMAL, sensorHandler)) {
+                StepLog.d(TAG, "持续静止，停止加速度采样，等待步伐检测");
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void disarmWakeTrigger() {
+            if (significantMotionSensor != null) {
+                sensorManager.cancelTriggerSensor(motionTrigger, significantMotionSensor);
+            }
+            if (stepDetectorSensor != null) {
+                sensorManager.unregisterListener(StepCounterService.this, stepDetectorSensor);
+            }
+        }
+
+        @Override
+        public void scheduleTimer(long delayMs) {
+            sensorHandler.removeCallbacks(powerTimerRunnable);
+            sensorHandler.postDelayed(powerTimerRunnable, delayMs);
+        }
+
+        @Override
+        public void cancelTimer() {
+            sensorHandler.removeCallbacks(powerTimerRunnable);
+        }
+    }
+
+    // 按亮灭屏选择批次延迟，并限制在 FIFO 容量之内，避免溢出丢样本
+    private int maxReportLatencyUs() {
+        int desired = screenOn ? MAX_REPORT_LATENCY_SCREEN_ON_US : MAX_REPORT_LATENCY_SCREEN_OFF_US;
+        long fifoUs = (long) accelerometer.getFifoMaxEventCount()
+                * rateController.getRate().periodUs() * 8 / 10;
+        return (int) Math.min(desired, fifoUs);
+    }
+
+    private void setScreenOn(boolean on) {
+        if (screenOn == on) {
+            return;
+        }
+        screenOn = on;
+        publisher.setScreenOn(on); // 灭屏时通知刷新间隔更长
+        flushScheduler.setScreenOn(on); // 灭屏时写入间隔更长
+        if (StepLog.DEBUG) {
+            StepLog.d(TAG, "批量统计: {}", batchStats.summary(SystemClock.elapsedRealtime()));
+        }
+        if (batchingSupported || useHardwareCounter) {
+            startStepDetection(); // 以新的批次延迟重新注册
         }
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
+        if (!firstSampleSeen) {
+            firstSampleSeen = true;
+            StepTrace.endAsyncStartup(StepTrace.FIRST_SAMPLE, FIRST_SAMPLE_COOKIE);
+            StepMetrics.FIRST_SAMPLE_MS.record(SystemClock.elapsedRealtime() - createdAtMs);
+        }
+        if (!batchStats.isBatchOpen()) {
+            // 同一批 FIFO 事件在一次 looper 消息中连续分发，
+            // 投递到队尾的任务会在整批事件处理完之后才执行
+            sensorHandler.post(batchEndRunnable);
+        }
+        batchStats.onSample();
+
         if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            // 系统计步传感器处理
-            if (totalSteps == 0) {
-                totalSteps = (int) event.values[0];
-            } else {
-                totalSteps = (int) event.values[0] - totalSteps;
+            // 系统计步传感器：累计读数按当日基线换算为新增步数
+            int delta = counterBaseline.onCounter((long) event.values[0], bootCount,
+                    currentDate, totalSteps);
+            if (counterBaseline.consumeChanged()) {
+                repository.saveCounterBaseline(counterBaseline.getDate(),
+                        counterBaseline.getBaseline(), counterBaseline.getBootCount());
+            }
+            if (delta > 0) {
+                totalSteps += delta;
+                StepMetrics.STEPS.add(delta);
+                repository.recordSteps(toWallTime(event.timestamp), delta);
+                flushScheduler.onStepsRecorded();
+                stepsDirty = true;
             }
-            broadcastStepUpdate(totalSteps);
-            updateNotification(totalSteps);
+        } else if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
+            // 只作为静止休眠时的唤醒源，步数仍由恢复后的全速检测计算
+            StepMetrics.WAKE_TRIGGERS.increment();
+            powerController.onWakeTrigger(SystemClock.elapsedRealtime());
+        } else if (powerController.getState() == AccelPowerController.State.PROBING) {
+            powerController.onProbeSample(event.values[0], event.values[1], event.values[2],
+                    SystemClock.elapsedRealtime());
         } else if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            // 自定义算法处理
-            boolean stepDetected = stepDetector.detectStep(
-                    event.values, System.currentTimeMillis());
-            if (stepDetected) {
-                totalSteps = stepDetector.getStepCount();
-                broadcastStepUpdate(totalSteps);
-                updateNotification(totalSteps);
+            // 自定义算法处理。批量投递时同一批样本的到达时间相同，必须使用事件自带的纳秒时间戳；
+            // 检测算法按时间戳实测采样率，不依赖请求的采样频率
+            int j = sampleCount * 3;
+            sampleXyz[j] = event.values[0];
+            sampleXyz[j + 1] = event.values[1];
+            sampleXyz[j + 2] = event.values[2];
+            sampleTimestamps[sampleCount] = event.timestamp;
+            if (++sampleCount == SAMPLE_BUFFER_SIZE) {
+                processSamples();
             }
         }
     }
 
-    private void broadcastStepUpdate(int steps) {
-        Intent intent = new Intent(ACTION_STEP_UPDATE);
-        intent.putExtra(EXTRA_STEP_COUNT, steps);
-        LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
+    // 把缓存的样本整批交给检测算法
+    private void processSamples() {
+        int n = sampleCount;
+        if (n == 0) {
+            return;
+        }
+        sampleCount = 0;
+        // 检测区段包含滤波、静止检测和波峰判断，逐样本的工作都在这一次调用里
+        StepTrace.begin(StepTrace.DETECT);
+        long start = System.nanoTime();
+        int steps = stepDetector.detectSteps(sampleXyz, sampleTimestamps, n, stepTimestamps);
+        StepMetrics.DETECT_NS_PER_SAMPLE.record((System.nanoTime() - start) / n);
+        StepTrace.end();
+        if (steps == 0) {
+            return;
+        }
+        batchSteps += steps;
+        StepMetrics.STEPS.add(steps);
+        // 每一步按其样本的时间戳记录，批量投递时保证分钟归属正确
+        for (int k = 0; k < steps; k++) {
+            repository.recordSteps(toWallTime(stepTimestamps[k]), 1);
+        }
+        totalSteps += steps;
+        flushScheduler.onStepsRecorded();
+        stepsDirty = true;
     }
 
-    private Notification createNotification() {
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("计步器运行中")
-                .setContentText("已记录 " + totalSteps + " 步")
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .build();
+    // 传感器时间戳（开机以来的纳秒）换算为墙上时间，批量投递时样本早于当前时间
+    private long toWallTime(long eventTimestampNs) {
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - eventTimestampNs) / 1_000_000L;
+        return System.currentTimeMillis() - Math.max(0, ageMs);
     }
 
-    private void updateNotification(int steps) {
-        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("智能计步器")
-                .setContentText("今日步数: " + steps + " 步")
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .build();
-        NotificationManager manager = getSystemService(NotificationManager.class);
-        if (manager != null) {
-            manager.notify(NOTIFICATION_ID, notification);
+    // 一批事件处理完毕：每批只广播和刷新通知一次，并借这次唤醒检查是否需要写入
+    private void onBatchEnd() {
+        StepTrace.begin(StepTrace.BATCH);
+        long start = System.nanoTime();
+        int batchSize = batchStats.endBatch();
+        if (batchSize > 0) {
+            StepMetrics.WAKEUPS.increment();
+            StepMetrics.SAMPLES.add(batchSize);
+            StepMetrics.BATCH_SIZE.record(batchSize);
+        }
+        processSamples();
+        if (stepsDirty) {
+            stepsDirty = false;
+            publisher.publish(totalSteps);
+        }
+        flushScheduler.setStill(stepDetector.isDeviceStill());
+        flushScheduler.onOpportunity();
+        if (!useHardwareCounter && powerController.getState() == AccelPowerController.State.ACTIVE) {
+            long now = SystemClock.elapsedRealtime();
+            rateController.onBatch(batchSteps, stepDetector.getCadenceHz(),
+                    stepDetector.getSignalQuality(), now);
+            powerController.onActiveBatch(stepDetector.isDeviceStill(), now);
+        }
+        batchSteps = 0;
+        StepMetrics.BATCH_PROCESS_NS.record(System.nanoTime() - start);
+        if (StepTrace.ENABLED) {
+            traceCounters();
         }
+        StepTrace.end();
+    }
+
+    // 计数器轨道：步数、动态阈值（仅默认引擎有）、静止状态和当前采样率档位
+    private void traceCounters() {
+        StepTrace.counter(StepTrace.COUNTER_STEPS, totalSteps);
+        if (stepDetector instanceof StepDetectionAlgorithm) {
+            StepTrace.counter(StepTrace.COUNTER_THRESHOLD,
+                    (long) (((StepDetectionAlgorithm) stepDetector).getCurrentThreshold() * 100));
+        }
+        StepTrace.counter(StepTrace.COUNTER_STILL, stepDetector.isDeviceStill() ? 1 : 0);
+        StepTrace.counter(StepTrace.COUNTER_RATE, rateController.getRate().hz);
+    }
+
+    // 设置变化时切换检测引擎（缓存中尚未处理的样本先交给旧引擎），目标变化时重新判断今天是否达标。
+    // 转到传感器线程执行，排在初始化之后
+    private void applySettings(StepSettings changed) {
+        sensorHandler.post(() -> {
+            if (!changed.detectorEngine.equals(appliedEngine)) {
+                appliedEngine = changed.detectorEngine;
+                processSamples();
+                stepDetector = StepDetectorFactory.create(appliedEngine);
+                StepLog.d(TAG, "检测引擎: {}", appliedEngine);
+            }
+            if (changed.dailyGoal != appliedGoal) {
+                appliedGoal = changed.dailyGoal;
+                repository.setDailyGoal(appliedGoal, currentDate);
+            }
+        });
     }
 
     private String getTodayDate() {
@@ -265,66 +603,118 @@ public class StepCounterService extends Service implements SensorEventListener {
     }
 
     public void resetSteps() {
+        if (Thread.currentThread() != sensorThread) {
+            sensorHandler.post(this::resetSteps);
+            return;
+        }
         totalSteps = 0;
+        stepsAtLastTick = 0;
+        sampleCount = 0;
         stepDetector.reset();
-        broadcastStepUpdate(0);
-        updateNotification(0);
+        repository.clearDay(currentDate);
+        counterBaseline.resetDay(currentDate);
+        if (counterBaseline.consumeChanged()) {
+            repository.saveCounterBaseline(counterBaseline.getDate(),
+                    counterBaseline.getBaseline(), counterBaseline.getBootCount());
+        }
+        publisher.publish(0);
     }
 
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {}
 
     @Override
-    public void onDestroy() {
-        super.onDestroy();
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-        }
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
-        }
-        unregisterReceiver(systemReceiver);
-        if (saveTimer != null) {
-            saveTimer.cancel();
-        }
-        saveStepData(); // 销毁前保存数据
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 进程可能即将被回收，尽快写入
+        sensorHandler.post(() -> flushScheduler.flushNow());
     }
 
     @Override
-    public IBinder onBind(Intent intent) {
-        return binder;
+    public void onDestroy() {
+        super.onDestroy();
+        settings.removeListener(settingsListener);
+        settings.flush();
+        // 传感器线程上的最后一个任务：注销传感器和接收器，处理缓存中的样本并写入剩余数据，然后退出线程。
+        // 初始化以及已经排队的任务（设置变化、内存紧张时的写入、重置等）都在它之前执行，主线程不用等待初始化；
+        // quit() 丢弃之后的任务和尚未到期的延迟任务。StepRepository 由进程共享（设置页和历史页也在用），不在这里关闭
+        sensorHandler.post(() -> {
+            if (sensorManager != null) {
+                sensorManager.unregisterListener(this);
+            }
+            if (significantMotionSensor != null) {
+                sensorManager.cancelTriggerSensor(motionTrigger, significantMotionSensor);
+            }
+            if (wakeLock != null && wakeLock.isHeld()) {
+                wakeLock.release();
+            }
+            unregisterReceiver(systemReceiver);
+            sensorHandler.removeCallbacks(batchEndRunnable);
+            sensorHandler.removeCallbacks(powerTimerRunnable);
+            processSamples();
+            flushScheduler.flushNow();
+            if (StepLog.INFO) {
+                long now = SystemClock.elapsedRealtime();
+                StepLog.i(TAG, "批量统计: {}", batchStats.summary(now));
+                StepLog.i(TAG, powerController.summary(now));
+                StepLog.i(TAG, rateController.summary(now));
+            }
+            publisher.stop(); // 广播最终步数，不再刷新通知
+            sensorThread.quit();
+        });
     }
 
-    // 定时保存数据的计时器
-    private class SaveTimer extends Thread {
-        private long interval;
-        private volatile boolean running = true;
-
-        SaveTimer(long interval) {
-            this.interval = interval;
+    /**
+     * adb shell dumpsys activity service com.example.stepcounter/.StepCounterService [export]
+     * 输出运行状态和 StepMetrics；带 export 参数时同时写入 metrics 文件。
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        // 运行状态属于传感器线程，在传感器线程上生成快照（排在初始化之后），binder 线程只等待结果
+        StringWriter state = new StringWriter();
+        CountDownLatch done = new CountDownLatch(1);
+        boolean posted = sensorHandler.post(() -> {
+            PrintWriter out = new PrintWriter(state);
+            long now = SystemClock.elapsedRealtime();
+            out.println("totalSteps=" + totalSteps + " date=" + currentDate
+                    + " hardwareCounter=" + useHardwareCounter);
+            out.println(batchStats.summary(now));
+            out.println(powerController.summary(now));
+            out.println(rateController.summary(now));
+            out.println(flushScheduler.summary());
+            out.flush();
+            done.countDown();
+        });
+        boolean ready = false;
+        try {
+            ready = posted && done.await(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        void setInterval(long interval) {
-            this.interval = interval;
+        writer.print(ready ? state.toString() : "sensor thread unavailable\n");
+        // StepMetrics 本身线程安全，直接读取
+        StepMetrics.dump(writer);
+        if (args != null && Arrays.asList(args).contains("export")) {
+            File file = exportMetrics();
+            writer.println(file != null ? "exported to " + file : "export failed");
         }
+    }
 
-        @Override
-        public void run() {
-            while (running) {
-                try {
-                    Thread.sleep(interval);
-                    saveStepData();
-                    Log.d(TAG, "自动保存步数数据");
-                } catch (InterruptedException e) {
-                    Log.e(TAG, "保存线程中断", e);
-                    running = false;
-                }
-            }
+    // 把指标写入应用外部文件目录（没有时用内部目录），返回文件，失败时返回 null
+    public File exportMetrics() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), METRICS_FILE);
+        try {
+            StepMetrics.writeTo(file);
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "导出指标失败", e);
+            return null;
         }
+    }
 
-        void cancel() {
-            running = false;
-            interrupt();
-        }
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
     }
-}
\ No newline at end of file
+}
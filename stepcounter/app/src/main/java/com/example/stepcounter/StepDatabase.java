@@ -0,0 +1,88 @@
+package com.example.stepcounter;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+// 步数数据库：按日汇总表，以日期为主键聚簇存储；元数据表记录已提交的日志序号；
+// 汇总索引表保存小时 / 天 / 周 / 月的预聚合桶（见 StepRollups）。
+// 分钟级数据由 StepTimeSeries 保存
+public class StepDatabase extends SQLiteOpenHelper {
+    private static final String DB_NAME = "steps.db";
+    private static final int DB_VERSION = 4;
+
+    public static final String TABLE_DAYS = "step_days";
+    private static final String TABLE_MINUTES_V1 = "step_minutes";
+    public static final String COLUMN_DATE = "date";
+    public static final String COLUMN_STEPS = "steps";
+    public static final String TABLE_META = "meta";
+    public static final String COLUMN_KEY = "key";
+    public static final String COLUMN_VALUE = "value";
+    // 已写入主存储的最大日志序号
+    public static final String META_JOURNAL_SEQ = "journal_seq";
+    // 系统计步传感器的当日基线，键后缀为日期；以及基线对应的开机次数
+    public static final String META_COUNTER_BASELINE_PREFIX = "counter_baseline/";
+    public static final String META_COUNTER_BOOT = "counter_boot";
+    // 汇总索引的版本，低于 StepRepository.ROLLUP_VERSION 时从已有数据重建
+    public static final String META_ROLLUP_VERSION = "rollup_version";
+
+    public static final String TABLE_ROLLUPS = "step_rollups";
+    public static final String COLUMN_PERIOD = "period";
+    public static final String COLUMN_BUCKET = "bucket";
+    public static final String COLUMN_MAX = "max";
+    public static final String COLUMN_ACTIVE_MINUTES = "active_minutes";
+    public static final String COLUMN_GOAL_DAYS = "goal_days";
+
+    public StepDatabase(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // 日期为主键，按日查询今日总步数是一次主键查找
+        db.execSQL("CREATE TABLE " + TABLE_DAYS + " ("
+                + COLUMN_DATE + " TEXT NOT NULL PRIMARY KEY, "
+                + COLUMN_STEPS + " INTEGER NOT NULL) WITHOUT ROWID");
+        createMetaTable(db);
+        createRollupTable(db);
+    }
+
+    private void createMetaTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_META + " ("
+                + COLUMN_KEY + " TEXT NOT NULL PRIMARY KEY, "
+                + COLUMN_VALUE + " INTEGER NOT NULL) WITHOUT ROWID");
+    }
+
+    // 以 (粒度, 键) 为主键，同一粒度的桶按时间顺序相邻，范围查询是一段连续扫描
+    private void createRollupTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ROLLUPS + " ("
+                + COLUMN_PERIOD + " INTEGER NOT NULL, "
+                + COLUMN_BUCKET + " TEXT NOT NULL, "
+                + COLUMN_STEPS + " INTEGER NOT NULL, "
+                + COLUMN_MAX + " INTEGER NOT NULL, "
+                + COLUMN_ACTIVE_MINUTES + " INTEGER NOT NULL, "
+                + COLUMN_GOAL_DAYS + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_PERIOD + ", " + COLUMN_BUCKET + ")) WITHOUT ROWID");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // v2 起分钟桶改存到按天的列式文件中
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_MINUTES_V1);
+        }
+        if (oldVersion < 3) {
+            createMetaTable(db);
+        }
+        if (oldVersion < 4) {
+            // 汇总索引由 StepRepository 在首次启动时从已有数据重建
+            createRollupTable(db);
+        }
+    }
+}
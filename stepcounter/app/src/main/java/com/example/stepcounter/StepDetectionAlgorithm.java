@@ -1,28 +1,22 @@
 package com.example.stepcounter;
 
-import android.util.Log;
-
-import java.util.LinkedList;
-
-public class StepDetectionAlgorithm {
-    private static final String TAG = "StepDetector";
-
-    // 存放三轴数据
-    private float[] oriValues = new float[3];
+// 波峰波谷 + 动态阈值检测引擎（默认引擎）
+public class StepDetectionAlgorithm implements StepDetector {
     // 用于存放计算阈值的波峰波谷差值
     private final float[] tempValue = new float[4];
     private int tempCount = 0;
     // 步频相关参数
-    private static final long MIN_STEP_INTERVAL = 300; // 最小步间间隔(ms)
-    private static final long MAX_STEP_INTERVAL = 2000; // 最大步间间隔(ms)
+    private final long minStepInterval; // 最小步间间隔(ns)
+    private final long maxStepInterval; // 最大步间间隔(ns)
     // 动态阈值参数
-    private static final float INITIAL_THRESHOLD = 1.3f;
-    private static final float MIN_THRESHOLD = 1.0f;
-    private static final float MAX_THRESHOLD = 3.0f;
+    private final float initialThreshold;
+    private final float minThreshold;
+    private final float maxThreshold;
+    private final float[] ladderLevels;
+    private final float[] ladderThresholds;
     // 静止检测参数
-    private static final float STILLNESS_THRESHOLD = 0.2f;
-    private static final int STILLNESS_WINDOW = 20;
-    private static final long STILLNESS_TIME = 3000;
+    private final float stillnessThreshold;
+    private final long stillnessTime; // ns
 
     // 状态变量
     private boolean isDirectionUp = false;
@@ -34,135 +28,255 @@ public class StepDetectionAlgorithm {
     private long timeOfThisPeak = 0;
     private long timeOfLastPeak = 0;
     private long lastStepTime = 0;
-    private int stepCount = 0;
     private float gravityNew = 0;
     private float gravityOld = 0;
-    private float dynamicThreshold = INITIAL_THRESHOLD;
+    private float dynamicThreshold;
+    // 步频与信号质量（波峰波谷差与阈值之比）的指数平均，供采样率控制使用
+    private float stepIntervalNs = 0;
+    private float signalQuality = 0;
 
     // 静止检测
-    private final LinkedList<Float> stillnessBuffer = new LinkedList<>();
+    private SlidingWindowStats stillnessWindow;
     private long lastMovementTime = 0;
     private boolean isDeviceStill = false;
 
-    // 低通滤波参数
-    private static final float ALPHA = 0.8f;
+    // 滤波：原先的三轴低通，或合加速度带通（高通去重力 + 低通去抖动）
+    private final boolean bandPass;
+    private float alpha;
     private float[] filteredValues = new float[3];
+    private final BiquadFilter highPass;
+    private final BiquadFilter lowPass;
+    // 是否已处理过第一个非静止样本（取代原先以 gravityOld == 0 作为首样本标记）
+    private boolean primed = false;
+    private boolean filterPrimed = false;
+
+    // 配置中的滤波系数和窗口长度按 configRateHz 给出，实际按实测采样率换算
+    private final float configRateHz;
+    private final float configAlpha;
+    private final int configStillnessWindow;
+    private final SampleRateEstimator rateEstimator = new SampleRateEstimator();
+    // 当前滤波器和窗口对应的采样率
+    private float designRateHz;
+
+    // 单样本调用复用的缓冲区
+    private final long[] singleTimestamp = new long[1];
+    private final long[] singleStep = new long[1];
+
+    public StepDetectionAlgorithm() {
+        this(StepDetectorConfig.DEFAULT);
+    }
+
+    public StepDetectionAlgorithm(StepDetectorConfig config) {
+        bandPass = config.filterMode == StepDetectorConfig.FilterMode.BAND_PASS;
+        alpha = config.lowPassAlpha;
+        configAlpha = config.lowPassAlpha;
+        configRateHz = config.sampleRateHz;
+        configStillnessWindow = config.stillnessWindow;
+        designRateHz = config.sampleRateHz;
+        highPass = BiquadFilter.highPass(config.sampleRateHz, config.bandPassLowHz,
+                BiquadFilter.BUTTERWORTH_Q);
+        lowPass = BiquadFilter.lowPass(config.sampleRateHz, config.bandPassHighHz,
+                BiquadFilter.BUTTERWORTH_Q);
+        minStepInterval = config.minStepIntervalMs * 1_000_000L;
+        maxStepInterval = config.maxStepIntervalMs * 1_000_000L;
+        initialThreshold = config.initialThreshold;
+        minThreshold = config.minThreshold;
+        maxThreshold = config.maxThreshold;
+        ladderLevels = config.ladderLevels;
+        ladderThresholds = config.ladderThresholds;
+        stillnessThreshold = config.stillnessThreshold;
+        stillnessTime = config.stillnessTimeMs * 1_000_000L;
+        stillnessWindow = new SlidingWindowStats(config.stillnessWindow);
+        dynamicThreshold = initialThreshold;
+    }
 
+    @Override
     public boolean detectStep(float[] accelerationData, long timestamp) {
         if (accelerationData == null || accelerationData.length < 3) {
             return false;
         }
-
-        // 应用低通滤波
-        for (int i = 0; i < 3; i++) {
-            filteredValues[i] = lowPassFilter(accelerationData[i], filteredValues[i]);
-        }
-
-        // 计算加速度矢量幅度
-        gravityNew = (float) Math.sqrt(
-                filteredValues[0] * filteredValues[0] +
-                        filteredValues[1] * filteredValues[1] +
-                        filteredValues[2] * filteredValues[2]
-        );
-
-        // 更新静止检测
-        updateStillnessDetection(gravityNew, timestamp);
-        if (isDeviceStill) {
-            return false;
-        }
-
-        // 检测步伐
-        boolean stepDetected = detectorNewStep(timestamp);
-        gravityOld = gravityNew;
-        return stepDetected;
-    }
-
-    private float lowPassFilter(float current, float last) {
-        return ALPHA * last + (1 - ALPHA) * current;
+        singleTimestamp[0] = timestamp;
+        return detectSteps(accelerationData, singleTimestamp, 1, singleStep) > 0;
     }
 
-    private void updateStillnessDetection(float value, long timestamp) {
-        stillnessBuffer.add(value);
-        if (stillnessBuffer.size() > STILLNESS_WINDOW) {
-            stillnessBuffer.removeFirst();
-        }
-
-        if (stillnessBuffer.size() < STILLNESS_WINDOW) {
-            return;
-        }
-
-        // 计算方差
-        float mean = 0;
-        for (float v : stillnessBuffer) mean += v;
-        mean /= stillnessBuffer.size();
-
-        float variance = 0;
-        for (float v : stillnessBuffer) {
-            variance += Math.pow(v - mean, 2);
-        }
-        variance /= stillnessBuffer.size();
+    /**
+     * 批量检测：xyz 为交错存放的三轴数据 (x0,y0,z0,x1,...)，timestamps 为对应的纳秒事件时间戳，
+     * 处理前 n 个样本，把检测到的步伐时间戳依次写入 outStepTimestamps，返回步数。
+     * outStepTimestamps 长度不足时只记录前 outStepTimestamps.length 个时间戳（步数仍计入返回值），
+     * 长度取 n 即可保证不丢。
+     *
+     * 逐样本状态在循环前读入局部变量、循环后写回，循环体内没有对象分配和虚调用，
+     * 与逐次调用 detectStep 的结果完全一致。
+     * 实测采样率偏离当前设计值时重新计算滤波系数和静止窗口长度（只在采样率变化时发生）。
+     */
+    @Override
+    public int detectSteps(float[] xyz, long[] timestamps, int n, long[] outStepTimestamps) {
+        float fx = filteredValues[0];
+        float fy = filteredValues[1];
+        float fz = filteredValues[2];
+        float gNew = gravityNew;
+        float gOld = gravityOld;
+        boolean isPrimed = primed;
+        boolean isFilterPrimed = filterPrimed;
+        boolean still = isDeviceStill;
+        long lastMovement = lastMovementTime;
+        boolean directionUp = isDirectionUp;
+        boolean lastUp = lastStatus;
+        int upCount = continueUpCount;
+        int formerUpCount = continueUpFormerCount;
+        float peak = peakOfWave;
+        float valley = valleyOfWave;
+        long thisPeak = timeOfThisPeak;
+        long lastPeak = timeOfLastPeak;
+        SlidingWindowStats window = stillnessWindow;
+        final boolean bandPass = this.bandPass;
+        float alpha = this.alpha;
+        final SampleRateEstimator rateEstimator = this.rateEstimator;
+        final BiquadFilter highPass = this.highPass;
+        final BiquadFilter lowPass = this.lowPass;
+        final float stillnessThreshold = this.stillnessThreshold;
+        final long stillnessTime = this.stillnessTime;
+        final long minStepInterval = this.minStepInterval;
+        final long maxStepInterval = this.maxStepInterval;
+        final int outCapacity = outStepTimestamps.length;
+        int steps = 0;
+
+        for (int i = 0, j = 0; i < n; i++, j += 3) {
+            long timestamp = timestamps[i];
+
+            rateEstimator.add(timestamp);
+            if (rateEstimator.differsFrom(designRateHz)) {
+                retune(rateEstimator.rateHz());
+                alpha = this.alpha;
+                window = stillnessWindow;
+                isFilterPrimed = false;
+            }
 
-        // 判断静止状态
-        if (variance < STILLNESS_THRESHOLD) {
-            if (timestamp - lastMovementTime > STILLNESS_TIME) {
-                isDeviceStill = true;
-                resetStepState(); // 静止时重置检测状态
+            if (bandPass) {
+                // 合加速度带通：只保留步频范围，重力和高频抖动都被滤掉
+                float x = xyz[j];
+                float y = xyz[j + 1];
+                float z = xyz[j + 2];
+                float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+                if (!isFilterPrimed) {
+                    // 以第一个样本的稳态初始化，避免启动瞬态
+                    highPass.reset(magnitude);
+                    lowPass.reset(0);
+                    isFilterPrimed = true;
+                }
+                gNew = lowPass.process(highPass.process(magnitude));
+            } else {
+                // 低通滤波并计算加速度矢量幅度
+                fx = alpha * fx + (1 - alpha) * xyz[j];
+                fy = alpha * fy + (1 - alpha) * xyz[j + 1];
+                fz = alpha * fz + (1 - alpha) * xyz[j + 2];
+                gNew = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
             }
-        } else {
-            lastMovementTime = timestamp;
-            isDeviceStill = false;
-        }
-    }
 
-    private boolean detectorNewStep(long timestamp) {
-        if (gravityOld == 0) {
-            return false;
-        }
+            // 静止检测：滑动窗口方差，O(1) 更新
+            window.add(gNew);
+            if (window.isFull()) {
+                if (window.variance() < stillnessThreshold) {
+                    if (timestamp - lastMovement > stillnessTime) {
+                        still = true;
+                        // 静止时重置检测状态
+                        upCount = 0;
+                        formerUpCount = 0;
+                        lastUp = false;
+                        peak = 0;
+                        valley = 0;
+                    }
+                } else {
+                    lastMovement = timestamp;
+                    still = false;
+                }
+            }
+            if (still) {
+                continue;
+            }
 
-        boolean isPeak = detectorPeak(gravityNew, gravityOld);
-        if (isPeak) {
-            timeOfLastPeak = timeOfThisPeak;
-            timeOfThisPeak = timestamp;
-
-            // 检查时间间隔
-            long interval = timeOfThisPeak - timeOfLastPeak;
-            if (interval >= MIN_STEP_INTERVAL && interval <= MAX_STEP_INTERVAL) {
-                // 检查波峰波谷差值
-                if (peakOfWave - valleyOfWave >= dynamicThreshold) {
-                    stepCount++;
-                    lastStepTime = timestamp;
-                    updateThreshold(peakOfWave - valleyOfWave);
-                    Log.d(TAG, "检测到步伐! 总步数: " + stepCount + ", 阈值: " + dynamicThreshold);
-                    return true;
+            if (isPrimed) {
+                // 波峰波谷判断
+                lastUp = directionUp;
+                if (gNew >= gOld) {
+                    directionUp = true;
+                    upCount++;
+                } else {
+                    formerUpCount = upCount;
+                    upCount = 0;
+                    directionUp = false;
+                }
+                if (!directionUp && lastUp && formerUpCount >= 2) {
+                    peak = gOld;
+                    lastPeak = thisPeak;
+                    thisPeak = timestamp;
+
+                    // 检查时间间隔和波峰波谷差值
+                    long interval = thisPeak - lastPeak;
+                    if (interval >= minStepInterval && interval <= maxStepInterval) {
+                        if (peak - valley >= dynamicThreshold) {
+                            updateCadence(timestamp, peak - valley);
+                            lastStepTime = timestamp;
+                            updateThreshold(peak - valley);
+                            if (steps < outCapacity) {
+                                outStepTimestamps[steps] = timestamp;
+                            }
+                            steps++;
+                        }
+                    } else if (interval > maxStepInterval) {
+                        // 超过最大间隔，更新阈值但不计步
+                        updateThreshold(peak - valley);
+                    }
+                } else if (!lastUp && directionUp) {
+                    valley = gOld;
                 }
-            } else if (interval > MAX_STEP_INTERVAL) {
-                // 超过最大间隔，更新阈值但不计步
-                updateThreshold(peakOfWave - valleyOfWave);
             }
+            gOld = gNew;
+            isPrimed = true;
         }
-        return false;
-    }
 
-    private boolean detectorPeak(float newValue, float oldValue) {
-        lastStatus = isDirectionUp;
+        filteredValues[0] = fx;
+        filteredValues[1] = fy;
+        filteredValues[2] = fz;
+        gravityNew = gNew;
+        gravityOld = gOld;
+        primed = isPrimed;
+        filterPrimed = isFilterPrimed;
+        isDeviceStill = still;
+        lastMovementTime = lastMovement;
+        isDirectionUp = directionUp;
+        lastStatus = lastUp;
+        continueUpCount = upCount;
+        continueUpFormerCount = formerUpCount;
+        peakOfWave = peak;
+        valleyOfWave = valley;
+        timeOfThisPeak = thisPeak;
+        timeOfLastPeak = lastPeak;
+        return steps;
+    }
 
-        if (newValue >= oldValue) {
-            isDirectionUp = true;
-            continueUpCount++;
+    // 按新的采样率换算：带通系数重新设计，低通系数保持相同的时间常数，静止窗口保持相同的时长
+    private void retune(float rateHz) {
+        designRateHz = rateHz;
+        highPass.setSampleRate(rateHz);
+        lowPass.setSampleRate(rateHz);
+        alpha = (float) Math.pow(configAlpha, configRateHz / rateHz);
+        int windowSize = Math.max(2, Math.round(configStillnessWindow * rateHz / configRateHz));
+        if (windowSize != stillnessWindow.capacity()) {
+            stillnessWindow = new SlidingWindowStats(windowSize);
         } else {
-            continueUpFormerCount = continueUpCount;
-            continueUpCount = 0;
-            isDirectionUp = false;
+            stillnessWindow.clear();
         }
+    }
 
-        // 波峰判断条件
-        if (!isDirectionUp && lastStatus && continueUpFormerCount >= 2) {
-            peakOfWave = oldValue;
-            return true;
-        } else if (!lastStatus && isDirectionUp) {
-            valleyOfWave = oldValue;
+    private void updateCadence(long timestamp, float peakValleyDiff) {
+        long interval = timestamp - lastStepTime;
+        // lastStepTime 为 0 表示这是重置后的第一步，还没有步间隔
+        if (lastStepTime != 0 && interval <= maxStepInterval) {
+            stepIntervalNs += stepIntervalNs == 0 ? interval : 0.2f * (interval - stepIntervalNs);
         }
-        return false;
+        float quality = peakValleyDiff / dynamicThreshold;
+        signalQuality += signalQuality == 0 ? quality : 0.2f * (quality - signalQuality);
     }
 
     private void updateThreshold(float peakValleyDiff) {
@@ -176,15 +290,17 @@ public class StepDetectionAlgorithm {
             avg /= tempValue.length;
 
             // 梯度调整阈值
-            if (avg >= 8) dynamicThreshold = 4.3f;
-            else if (avg >= 7) dynamicThreshold = 3.3f;
-            else if (avg >= 4) dynamicThreshold = 2.3f;
-            else if (avg >= 3) dynamicThreshold = 2.0f;
-            else dynamicThreshold = 1.3f;
+            dynamicThreshold = initialThreshold;
+            for (int i = 0; i < ladderLevels.length; i++) {
+                if (avg >= ladderLevels[i]) {
+                    dynamicThreshold = ladderThresholds[i];
+                    break;
+                }
+            }
 
             // 阈值范围限制
-            dynamicThreshold = Math.max(dynamicThreshold, MIN_THRESHOLD);
-            dynamicThreshold = Math.min(dynamicThreshold, MAX_THRESHOLD);
+            dynamicThreshold = Math.max(dynamicThreshold, minThreshold);
+            dynamicThreshold = Math.min(dynamicThreshold, maxThreshold);
 
             // 滚动更新
             System.arraycopy(tempValue, 1, tempValue, 0, tempValue.length - 1);
@@ -200,26 +316,41 @@ public class StepDetectionAlgorithm {
         valleyOfWave = 0;
     }
 
-    public int getStepCount() {
-        return stepCount;
-    }
-
+    @Override
     public void reset() {
-        stepCount = 0;
         gravityOld = 0;
+        primed = false;
+        filterPrimed = false;
         lastStepTime = 0;
-        dynamicThreshold = INITIAL_THRESHOLD;
+        timeOfThisPeak = 0;
+        timeOfLastPeak = 0;
+        stepIntervalNs = 0;
+        signalQuality = 0;
+        dynamicThreshold = initialThreshold;
         tempCount = 0;
-        stillnessBuffer.clear();
+        stillnessWindow.clear();
         resetStepState();
         isDeviceStill = false;
         lastMovementTime = 0;
+        // 采样率重新估计，旧的间隔历史不再参与重设计
+        rateEstimator.reset();
     }
 
+    @Override
     public boolean isDeviceStill() {
         return isDeviceStill;
     }
 
+    @Override
+    public float getCadenceHz() {
+        return stepIntervalNs > 0 ? 1e9f / stepIntervalNs : 0f;
+    }
+
+    @Override
+    public float getSignalQuality() {
+        return signalQuality;
+    }
+
     public float getCurrentThreshold() {
         return dynamicThreshold;
     }
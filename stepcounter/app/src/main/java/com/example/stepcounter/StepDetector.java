@@ -0,0 +1,29 @@
+package com.example.stepcounter;
+
+/**
+ * 步伐检测引擎。实现类都不是线程安全的，由传感器线程独占使用。
+ * 时间戳为传感器事件时间戳 (SensorEvent.timestamp)，单位纳秒、单调递增；
+ * 各引擎按时间戳实测采样率，不依赖请求的采样频率，批量投递的样本也按各自的采集时间处理。
+ */
+public interface StepDetector {
+
+    // 处理单个样本，检测到一步时返回 true
+    boolean detectStep(float[] accelerationData, long timestamp);
+
+    /**
+     * 批量检测：xyz 为交错存放的三轴数据 (x0,y0,z0,x1,...)，处理前 n 个样本，
+     * 把检测到的步伐时间戳依次写入 outStepTimestamps，返回步数。
+     * outStepTimestamps 长度不足时只记录前 outStepTimestamps.length 个时间戳，长度取 n 即可保证不丢。
+     */
+    int detectSteps(float[] xyz, long[] timestamps, int n, long[] outStepTimestamps);
+
+    boolean isDeviceStill();
+
+    // 最近的步频(Hz)，尚无估计时为 0；调用方应结合是否有新的步伐判断是否仍在行走
+    float getCadenceHz();
+
+    // 信号质量：最近步伐的信号幅度与检测门限之比，越大越可靠，接近 1 说明勉强可分辨；没有步伐时为 0
+    float getSignalQuality();
+
+    void reset();
+}
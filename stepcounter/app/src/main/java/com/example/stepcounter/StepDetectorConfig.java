@@ -0,0 +1,182 @@
+package com.example.stepcounter;
+
+/**
+ * 各检测引擎共用的参数，不可变，通过 Builder 修改个别参数。
+ * 阈值、间隔等默认值即原先写死在 StepDetectionAlgorithm 中的常量；
+ * 默认滤波改为带通，lowPass(0.8f) 可还原原先的滤波。
+ */
+public final class StepDetectorConfig {
+    public static final StepDetectorConfig DEFAULT = new Builder().build();
+
+    public enum FilterMode {
+        // 原先的三轴单极点低通，合加速度中保留重力和高频抖动
+        LOW_PASS,
+        // 合加速度经 biquad 高通 + 低通组成的带通，只保留步频范围
+        BAND_PASS
+    }
+
+    public final FilterMode filterMode;
+    // 三轴低通滤波系数 (LOW_PASS)
+    public final float lowPassAlpha;
+    // 带通范围 (BAND_PASS)
+    public final float bandPassLowHz;
+    public final float bandPassHighHz;
+    // lowPassAlpha 与 stillnessWindow 所对应的采样率，也是测得实际采样率之前的初始设计值；
+    // 引擎运行时按时间戳实测的采样率换算
+    public final float sampleRateHz;
+    // 步间间隔范围(ms)
+    public final long minStepIntervalMs;
+    public final long maxStepIntervalMs;
+    // 动态阈值：初始值、上下限，以及按最近波峰波谷差均值分档的阶梯
+    // （均值 >= ladderLevels[i] 时阈值取 ladderThresholds[i]，都不满足时取初始值）
+    public final float initialThreshold;
+    public final float minThreshold;
+    public final float maxThreshold;
+    public final float[] ladderLevels;
+    public final float[] ladderThresholds;
+    // 静止检测：窗口样本数（按 sampleRateHz 计）、方差阈值、持续时间(ms)
+    public final int stillnessWindow;
+    public final float stillnessThreshold;
+    public final long stillnessTimeMs;
+    // 自相关引擎：分析窗口时长(ms)、每隔多少个样本重新估计步频、判定为周期运动的最小相关系数
+    public final long autocorrelationWindowMs;
+    public final int autocorrelationHop;
+    public final float autocorrelationMinScore;
+    // 过零引擎：迟滞幅度 (m/s^2)
+    public final float zeroCrossingHysteresis;
+
+    private StepDetectorConfig(Builder builder) {
+        filterMode = builder.filterMode;
+        lowPassAlpha = builder.lowPassAlpha;
+        bandPassLowHz = builder.bandPassLowHz;
+        bandPassHighHz = builder.bandPassHighHz;
+        sampleRateHz = builder.sampleRateHz;
+        minStepIntervalMs = builder.minStepIntervalMs;
+        maxStepIntervalMs = builder.maxStepIntervalMs;
+        initialThreshold = builder.initialThreshold;
+        minThreshold = builder.minThreshold;
+        maxThreshold = builder.maxThreshold;
+        ladderLevels = builder.ladderLevels.clone();
+        ladderThresholds = builder.ladderThresholds.clone();
+        stillnessWindow = builder.stillnessWindow;
+        stillnessThreshold = builder.stillnessThreshold;
+        stillnessTimeMs = builder.stillnessTimeMs;
+        autocorrelationWindowMs = builder.autocorrelationWindowMs;
+        autocorrelationHop = builder.autocorrelationHop;
+        autocorrelationMinScore = builder.autocorrelationMinScore;
+        zeroCrossingHysteresis = builder.zeroCrossingHysteresis;
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.filterMode = filterMode;
+        builder.lowPassAlpha = lowPassAlpha;
+        builder.bandPassLowHz = bandPassLowHz;
+        builder.bandPassHighHz = bandPassHighHz;
+        builder.sampleRateHz = sampleRateHz;
+        builder.minStepIntervalMs = minStepIntervalMs;
+        builder.maxStepIntervalMs = maxStepIntervalMs;
+        builder.initialThreshold = initialThreshold;
+        builder.minThreshold = minThreshold;
+        builder.maxThreshold = maxThreshold;
+        builder.ladderLevels = ladderLevels;
+        builder.ladderThresholds = ladderThresholds;
+        builder.stillnessWindow = stillnessWindow;
+        builder.stillnessThreshold = stillnessThreshold;
+        builder.stillnessTimeMs = stillnessTimeMs;
+        builder.autocorrelationWindowMs = autocorrelationWindowMs;
+        builder.autocorrelationHop = autocorrelationHop;
+        builder.autocorrelationMinScore = autocorrelationMinScore;
+        builder.zeroCrossingHysteresis = zeroCrossingHysteresis;
+        return builder;
+    }
+
+    public static class Builder {
+        private FilterMode filterMode = FilterMode.BAND_PASS;
+        private float lowPassAlpha = 0.8f;
+        private float bandPassLowHz = 0.5f;
+        private float bandPassHighHz = 3.0f;
+        private float sampleRateHz = 50f;
+        private long minStepIntervalMs = 300;
+        private long maxStepIntervalMs = 2000;
+        private float initialThreshold = 1.3f;
+        private float minThreshold = 1.0f;
+        private float maxThreshold = 3.0f;
+        private float[] ladderLevels = {8f, 7f, 4f, 3f};
+        private float[] ladderThresholds = {4.3f, 3.3f, 2.3f, 2.0f};
+        private int stillnessWindow = 20;
+        private float stillnessThreshold = 0.2f;
+        private long stillnessTimeMs = 3000;
+        private long autocorrelationWindowMs = 2500;
+        private int autocorrelationHop = 25;
+        private float autocorrelationMinScore = 0.5f;
+        private float zeroCrossingHysteresis = 0.6f;
+
+        // 原先的三轴低通，alpha 为上一次输出的权重
+        public Builder lowPass(float alpha) {
+            filterMode = FilterMode.LOW_PASS;
+            lowPassAlpha = alpha;
+            return this;
+        }
+
+        public Builder bandPass(float lowHz, float highHz) {
+            if (lowHz <= 0 || highHz <= lowHz) {
+                throw new IllegalArgumentException("invalid band " + lowHz + "-" + highHz);
+            }
+            filterMode = FilterMode.BAND_PASS;
+            bandPassLowHz = lowHz;
+            bandPassHighHz = highHz;
+            return this;
+        }
+
+        public Builder sampleRateHz(float value) {
+            sampleRateHz = value;
+            return this;
+        }
+
+        public Builder stepIntervalMs(long min, long max) {
+            minStepIntervalMs = min;
+            maxStepIntervalMs = max;
+            return this;
+        }
+
+        public Builder threshold(float initial, float min, float max) {
+            initialThreshold = initial;
+            minThreshold = min;
+            maxThreshold = max;
+            return this;
+        }
+
+        public Builder thresholdLadder(float[] levels, float[] thresholds) {
+            if (levels.length != thresholds.length) {
+                throw new IllegalArgumentException("levels and thresholds differ in length");
+            }
+            ladderLevels = levels;
+            ladderThresholds = thresholds;
+            return this;
+        }
+
+        public Builder stillness(int window, float threshold, long timeMs) {
+            stillnessWindow = window;
+            stillnessThreshold = threshold;
+            stillnessTimeMs = timeMs;
+            return this;
+        }
+
+        public Builder autocorrelation(long windowMs, int hop, float minScore) {
+            autocorrelationWindowMs = windowMs;
+            autocorrelationHop = hop;
+            autocorrelationMinScore = minScore;
+            return this;
+        }
+
+        public Builder zeroCrossingHysteresis(float value) {
+            zeroCrossingHysteresis = value;
+            return this;
+        }
+
+        public StepDetectorConfig build() {
+            return new StepDetectorConfig(this);
+        }
+    }
+}
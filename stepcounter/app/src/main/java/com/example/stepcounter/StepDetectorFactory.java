@@ -0,0 +1,42 @@
+package com.example.stepcounter;
+
+/**
+ * 按名称创建检测引擎。引擎名保存在设置中 (KEY_DETECTOR_ENGINE)，
+ * 便于按设备选择满足精度要求的最便宜的引擎。
+ */
+public final class StepDetectorFactory {
+    public static final String KEY_DETECTOR_ENGINE = "detector_engine";
+
+    // 波峰波谷 + 动态阈值（原有算法）
+    public static final String ENGINE_THRESHOLD = "threshold";
+    // 自相关步频估计
+    public static final String ENGINE_AUTOCORRELATION = "autocorrelation";
+    // 带通合加速度过零
+    public static final String ENGINE_ZERO_CROSSING = "zero_crossing";
+    public static final String DEFAULT_ENGINE = ENGINE_THRESHOLD;
+
+    private static final String[] ENGINES = {
+            ENGINE_THRESHOLD, ENGINE_AUTOCORRELATION, ENGINE_ZERO_CROSSING
+    };
+
+    private StepDetectorFactory() {
+    }
+
+    public static String[] engines() {
+        return ENGINES.clone();
+    }
+
+    // 未知的引擎名（例如旧版本写入的设置）退回默认引擎
+    public static StepDetector create(String engine, StepDetectorConfig config) {
+        if (ENGINE_AUTOCORRELATION.equals(engine)) {
+            return new AutocorrelationStepDetector(config);
+        } else if (ENGINE_ZERO_CROSSING.equals(engine)) {
+            return new ZeroCrossingStepDetector(config);
+        }
+        return new StepDetectionAlgorithm(config);
+    }
+
+    public static StepDetector create(String engine) {
+        return create(engine, StepDetectorConfig.DEFAULT);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.stepcounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 基于内存映射文件的只追加步数日志。
+ * 追加只是写入映射内存，不产生系统调用；进程被杀后页缓存中的数据仍会落盘，
+ * 重启时重放尚未提交到主存储的记录。主存储提交后调用 compact() 回收空间。
+ *
+ * 文件布局：16 字节头 (魔数、版本、已提交的最大序号)，随后是定长 24 字节记录：
+ * long 序号、long 墙上时间(ms)、int 步数、int 校验。序号总是最后写入。
+ * 有效记录是校验正确且序号严格递增的那些：序号为 0 或校验不符的记录（写到一半）被跳过，
+ * 序号不大于前一条有效记录的是 compact() 被打断时残留的旧副本，同样忽略，因此不会重放两次。
+ * 非线程安全，由调用方加锁。
+ */
+public class StepJournal {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final int MAGIC = 0x534A524E; // "SJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 24;
+    private static final int BASE_SEQ_OFFSET = 8;
+
+    public interface Visitor {
+        void onRecord(long seq, long wallTimeMs, int steps);
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int writePosition;
+    private long lastSeq;
+
+    public StepJournal(File path, int capacity) throws IOException {
+        this.capacity = capacity;
+        file = new RandomAccessFile(path, "rw");
+        boolean fresh = file.length() < capacity;
+        file.setLength(capacity);
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (fresh || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            reset(0);
+        }
+        // 找到日志结尾：最后一条有效记录之后。扫描整个文件，compact() 复制到一半的记录之后，
+        // 原位置上的记录仍然有效
+        lastSeq = buffer.getLong(BASE_SEQ_OFFSET);
+        writePosition = HEADER_SIZE;
+        long prevSeq = 0;
+        for (int pos = HEADER_SIZE; pos + RECORD_SIZE <= capacity; pos += RECORD_SIZE) {
+            if (isValid(pos, prevSeq)) {
+                prevSeq = buffer.getLong(pos);
+                writePosition = pos + RECORD_SIZE;
+            }
+        }
+        lastSeq = Math.max(lastSeq, prevSeq);
+    }
+
+    public StepJournal(File path) throws IOException {
+        this(path, DEFAULT_CAPACITY);
+    }
+
+    // 追加一条记录，返回其序号；日志已满时返回 -1，调用方应尽快提交并 compact
+    public long append(long wallTimeMs, int steps) {
+        if (writePosition + RECORD_SIZE > capacity) {
+            return -1;
+        }
+        long seq = lastSeq + 1;
+        int pos = writePosition;
+        buffer.putLong(pos + 8, wallTimeMs);
+        buffer.putInt(pos + 16, steps);
+        buffer.putInt(pos + 20, checksum(seq, wallTimeMs, steps));
+        // 序号最后写入：写到一半被杀时该记录无效
+        buffer.putLong(pos, seq);
+        writePosition += RECORD_SIZE;
+        lastSeq = seq;
+        return seq;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    // 已用比例，0~1
+    public float usage() {
+        return (writePosition - HEADER_SIZE) / (float) (capacity - HEADER_SIZE);
+    }
+
+    public boolean isEmpty() {
+        return writePosition == HEADER_SIZE;
+    }
+
+    // 重放序号大于 afterSeq 的记录
+    public void replay(long afterSeq, Visitor visitor) {
+        long prevSeq = 0;
+        for (int pos = HEADER_SIZE; pos < writePosition; pos += RECORD_SIZE) {
+            if (!isValid(pos, prevSeq)) {
+                continue;
+            }
+            long seq = buffer.getLong(pos);
+            prevSeq = seq;
+            if (seq > afterSeq) {
+                visitor.onRecord(seq, buffer.getLong(pos + 8), buffer.getInt(pos + 16));
+            }
+        }
+    }
+
+    // 丢弃序号不大于 committedSeq 的记录（以及无效记录），其余记录移到日志开头。
+    // 每条记录先复制内容、最后写序号：中途被杀时目标位置要么是旧记录，要么校验不符，
+    // 已复制记录的原位置副本序号不大于新位置的记录，重启时都会被忽略
+    public void compact(long committedSeq) {
+        int write = HEADER_SIZE;
+        long prevSeq = 0;
+        for (int read = HEADER_SIZE; read < writePosition; read += RECORD_SIZE) {
+            if (!isValid(read, prevSeq)) {
+                continue;
+            }
+            long seq = buffer.getLong(read);
+            prevSeq = seq;
+            if (seq <= committedSeq) {
+                continue;
+            }
+            if (read != write) {
+                buffer.putLong(write + 8, buffer.getLong(read + 8));
+                buffer.putInt(write + 16, buffer.getInt(read + 16));
+                buffer.putInt(write + 20, buffer.getInt(read + 20));
+                buffer.putLong(write, seq);
+            }
+            write += RECORD_SIZE;
+        }
+        if (write == writePosition) {
+            return;
+        }
+        // 清除旧的尾部，防止残留记录在重启时被当作有效记录
+        for (int pos = write; pos < writePosition; pos += 8) {
+            buffer.putLong(pos, 0);
+        }
+        writePosition = write;
+        buffer.putLong(BASE_SEQ_OFFSET, Math.max(buffer.getLong(BASE_SEQ_OFFSET), committedSeq));
+    }
+
+    // 序号不能回退：主存储记录的已提交序号可能大于日志中残留的序号
+    public void ensureSeqAtLeast(long seq) {
+        if (lastSeq < seq) {
+            lastSeq = seq;
+            if (isEmpty()) {
+                buffer.putLong(BASE_SEQ_OFFSET, seq);
+            }
+        }
+    }
+
+    // 把映射内存同步到存储设备（关闭时调用）
+    public void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+
+    private void reset(long baseSeq) {
+        for (int pos = 0; pos + 8 <= capacity; pos += 8) {
+            buffer.putLong(pos, 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(BASE_SEQ_OFFSET, baseSeq);
+    }
+
+    // 校验正确且序号大于前一条有效记录
+    private boolean isValid(int pos, long prevSeq) {
+        long seq = buffer.getLong(pos);
+        return seq > prevSeq && buffer.getInt(pos + 20)
+                == checksum(seq, buffer.getLong(pos + 8), buffer.getInt(pos + 16));
+    }
+
+    private static int checksum(long seq, long wallTimeMs, int steps) {
+        long h = seq * 0x9E3779B97F4A7C15L ^ wallTimeMs * 0xC2B2AE3D27D4EB4FL ^ steps;
+        return (int) (h ^ (h >>> 32)) ^ MAGIC;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.stepcounter;
+
+import android.util.Log;
+
+/**
+ * 调试日志门面。级别由 BuildConfig.LOG_LEVEL 在编译期决定（debug 构建为 DEBUG，release 为 INFO），
+ * DEBUG / INFO 都是编译期常量，关闭的级别在调用处整段被删除。
+ *
+ * 消息用 {} 占位，参数只在级别开启时才格式化；基本类型有单独的重载，关闭时既不拼接字符串也不装箱。
+ * 参数更多或计算参数本身有开销时，用 if (StepLog.DEBUG) 包住整段调用。
+ * 警告和错误仍直接使用 android.util.Log，始终输出。
+ */
+public final class StepLog {
+    public static final boolean DEBUG = BuildConfig.LOG_LEVEL <= Log.DEBUG;
+    public static final boolean INFO = BuildConfig.LOG_LEVEL <= Log.INFO;
+
+    private StepLog() {
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void d(String tag, String format, long arg) {
+        if (DEBUG) {
+            Log.d(tag, format(format, Long.toString(arg), null));
+        }
+    }
+
+    public static void d(String tag, String format, long arg1, long arg2) {
+        if (DEBUG) {
+            Log.d(tag, format(format, Long.toString(arg1), Long.toString(arg2)));
+        }
+    }
+
+    public static void d(String tag, String format, double arg) {
+        if (DEBUG) {
+            Log.d(tag, format(format, Double.toString(arg), null));
+        }
+    }
+
+    public static void d(String tag, String format, long arg1, double arg2) {
+        if (DEBUG) {
+            Log.d(tag, format(format, Long.toString(arg1), Double.toString(arg2)));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        if (DEBUG) {
+            Log.d(tag, format(format, String.valueOf(arg), null));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (DEBUG) {
+            Log.d(tag, format(format, String.valueOf(arg1), String.valueOf(arg2)));
+        }
+    }
+
+    public static void i(String tag, String message) {
+        if (INFO) {
+            Log.i(tag, message);
+        }
+    }
+
+    public static void i(String tag, String format, Object arg) {
+        if (INFO) {
+            Log.i(tag, format(format, String.valueOf(arg), null));
+        }
+    }
+
+    // 依次替换前两个 {}，多余的占位符原样保留
+    static String format(String format, String arg1, String arg2) {
+        StringBuilder sb = new StringBuilder(format.length() + 16);
+        int from = 0;
+        String[] args = {arg1, arg2};
+        for (String arg : args) {
+            if (arg == null) {
+                break;
+            }
+            int at = format.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            sb.append(format, from, at).append(arg);
+            from = at + 2;
+        }
+        return sb.append(format, from, format.length()).toString();
+    }
+}
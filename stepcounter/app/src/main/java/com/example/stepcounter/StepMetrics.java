@@ -0,0 +1,101 @@
+package com.example.stepcounter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内常驻的性能指标：无锁计数器和对数分桶直方图。
+ * 指标在类加载时注册好，热路径上只有 LongAdder 累加和原子数组自增，不分配对象，可以在正式版中常开。
+ *
+ * 通过 dumpsys 查看：adb shell dumpsys activity service com.example.stepcounter/.StepCounterService，
+ * 加参数 export 时同时写入文件（见 StepCounterService.dump）。
+ */
+public final class StepMetrics {
+    private static final List<LongAdder> counters = new ArrayList<>();
+    private static final List<String> counterNames = new ArrayList<>();
+    private static final List<LogHistogram> histograms = new ArrayList<>();
+
+    // 检测路径：每批处理耗时均摊到每个样本(ns)，以及整批处理（检测 + 发布 + 写入调度）耗时(ns)
+    public static final LogHistogram DETECT_NS_PER_SAMPLE = histogram("detect_ns_per_sample");
+    public static final LogHistogram BATCH_PROCESS_NS = histogram("batch_process_ns");
+    // 每批事件数
+    public static final LogHistogram BATCH_SIZE = histogram("batch_size");
+    // 广播 + 通知刷新耗时(ns)，以及通知重建耗时(ns)
+    public static final LogHistogram PUBLISH_NS = histogram("publish_ns");
+    public static final LogHistogram NOTIFY_NS = histogram("notify_ns");
+    // 写线程一次写入数据库和分钟文件的耗时(ns)
+    public static final LogHistogram FLUSH_NS = histogram("flush_ns");
+    // 服务启动：主线程 onCreate 耗时(ns)、传感器线程上的初始化耗时(ns)、从服务创建到第一个传感器事件(ms)
+    public static final LogHistogram SERVICE_CREATE_NS = histogram("service_create_ns");
+    public static final LogHistogram SERVICE_INIT_NS = histogram("service_init_ns");
+    public static final LogHistogram FIRST_SAMPLE_MS = histogram("first_sample_ms");
+    // 每分钟步数（系统每分钟广播时记录）
+    public static final LogHistogram STEPS_PER_MINUTE = histogram("steps_per_minute");
+
+    public static final LongAdder SAMPLES = counter("samples");
+    public static final LongAdder STEPS = counter("steps");
+    // 传感器批次投递（每次投递唤醒一次传感器线程）
+    public static final LongAdder WAKEUPS = counter("wakeups");
+    // 静止休眠时的唤醒触发和探测定时器
+    public static final LongAdder WAKE_TRIGGERS = counter("wake_triggers");
+    public static final LongAdder PROBE_TIMERS = counter("probe_timers");
+    public static final LongAdder BROADCASTS = counter("broadcasts");
+    public static final LongAdder NOTIFICATIONS = counter("notifications");
+    public static final LongAdder FLUSHES = counter("flushes");
+
+    private StepMetrics() {
+    }
+
+    private static LongAdder counter(String name) {
+        LongAdder adder = new LongAdder();
+        counters.add(adder);
+        counterNames.add(name);
+        return adder;
+    }
+
+    private static LogHistogram histogram(String name) {
+        LogHistogram histogram = new LogHistogram(name);
+        histograms.add(histogram);
+        return histogram;
+    }
+
+    public static void dump(PrintWriter writer) {
+        writer.println("counters:");
+        for (int i = 0; i < counters.size(); i++) {
+            writer.println("  " + counterNames.get(i) + "=" + counters.get(i).sum());
+        }
+        writer.println("histograms:");
+        for (LogHistogram histogram : histograms) {
+            writer.println("  " + histogram);
+        }
+    }
+
+    // 导出到文件（覆盖），第一行为导出时间
+    public static void writeTo(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.println("# " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US)
+                    .format(new Date()));
+            dump(writer);
+        }
+    }
+
+    public static void reset() {
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+        for (LogHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package com.example.stepcounter;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 步数持久化，采用写后缓冲 (write-behind)：
+ * recordSteps 只在内存中按分钟累加，flushNow 把积攒的增量批量写出——分钟增量追加到
+ * StepTimeSeries 的按天列式文件，日总数在单个事务中更新到数据库。
+ * 写入时机由 FlushScheduler 决定，日志将满时也会提前写入。所有写操作都在单独的写线程上执行。
+ *
+ * 每一步同时追加到内存映射日志 StepJournal，进程被杀也不会丢失尚未写入的步数：
+ * 日总数与已提交的日志序号在同一事务中写入，重启时 recover() 只重放序号更大的记录。
+ *
+ * 同一事务中还增量更新汇总索引 StepRollups（小时 / 天 / 周 / 月），统计查询只读汇总桶。
+ * 索引版本落后时（首次升级到带索引的版本）在写线程上从分钟文件和日汇总表重建一次。
+ *
+ * 进程内唯一的实例由 get() 创建，计步服务、设置页和历史页共用，不依赖服务是否在运行；
+ * 实例随进程存在，不关闭。
+ */
+public class StepRepository {
+    private static final String TAG = "StepRepository";
+    private static final int MINUTES_PER_DAY = StepTimeSeries.MINUTES_PER_DAY;
+    static final int ROLLUP_VERSION = 1;
+
+    private static StepRepository instance;
+
+    private final StepDatabase database;
+    private final StepTimeSeries timeSeries;
+    // 可为 null（日志文件无法打开时退化为纯内存缓冲）
+    private final StepJournal journal;
+    private final StepRollupStore rollupStore;
+    private final StepRollups rollups;
+    // 每日目标，判断是否达标（写线程读取）
+    private volatile int dailyGoal;
+    // 最近写入那天写入前的分钟步数，用于计算有步数的分钟（仅写线程访问）
+    private String rollupDate;
+    private int[] rollupMinutes;
+    private static final float JOURNAL_FLUSH_THRESHOLD = 0.75f;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "StepDbWriter"));
+
+    private final Object lock = new Object();
+    // 尚未写入数据库的增量：日期 -> 每分钟步数
+    private Map<String, int[]> pending = new HashMap<>();
+    private boolean hasPending = false;
+    private boolean flushScheduled = false;
+    // 内存增量覆盖到的最大日志序号（传感器线程和写线程都会修改，在 lock 内访问）
+    private long pendingMaxSeq = 0;
+    // 已提交到数据库的日志序号（仅写线程访问）
+    private long committedSeq = 0;
+
+    // 缓存当天的起止时间，避免每一步都做日历计算
+    private String cachedDate;
+    private long dayStartMs = 0;
+    private long nextDayStartMs = 0;
+
+    /**
+     * 进程内唯一的实例。首次调用时等待设置加载、打开数据库和步数日志，并重放日志中尚未提交的记录
+     * （必要时重建汇总索引），之后直接返回。阻塞调用，不要在主线程上调用。
+     */
+    public static synchronized StepRepository get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            StepRepository repository = new StepRepository(new StepDatabase(app),
+                    new StepTimeSeries(new File(app.getFilesDir(), "step_series")), openJournal(app));
+            // 汇总索引按当前目标重建，目标需在 recover() 之前设置
+            String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+            repository.setDailyGoal(SettingsRepository.get(app).awaitSnapshot().dailyGoal, today);
+            repository.recover();
+            instance = repository;
+        }
+        return instance;
+    }
+
+    private static StepJournal openJournal(Context context) {
+        try {
+            return new StepJournal(new File(context.getFilesDir(), "step_journal.bin"));
+        } catch (IOException e) {
+            Log.e(TAG, "无法打开步数日志，未写入的步数在进程被杀时可能丢失", e);
+            return null;
+        }
+    }
+
+    private StepRepository(StepDatabase database, StepTimeSeries timeSeries, StepJournal journal) {
+        this.database = database;
+        this.timeSeries = timeSeries;
+        this.journal = journal;
+        rollupStore = new StepRollupStore(database);
+        rollups = new StepRollups(rollupStore);
+    }
+
+    // 修改每日目标，并重新判断 date（今天）是否达标；之前的日期保持当时的结果。
+    // 启动时在 recover() 之前调用一次，汇总索引按此目标重建
+    public void setDailyGoal(int goal, String date) {
+        dailyGoal = goal;
+        writer.execute(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                rollups.refreshGoal(date, goal);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    // 记录步数（传感器线程调用）：写入内存增量和映射日志，不产生系统调用
+    public void recordSteps(long wallTimeMs, int steps) {
+        boolean flushNeeded = false;
+        synchronized (lock) {
+            addPending(wallTimeMs, steps);
+            if (journal != null) {
+                long seq = journal.append(wallTimeMs, steps);
+                if (seq > 0) {
+                    pendingMaxSeq = seq;
+                }
+                // 日志将满（或已满）时提前写入以回收空间；已满期间的步数只保存在内存中
+                flushNeeded = !flushScheduled
+                        && (seq < 0 || journal.usage() > JOURNAL_FLUSH_THRESHOLD);
+                if (flushNeeded && seq < 0) {
+                    Log.w(TAG, "步数日志已满，等待写入后回收");
+                }
+            }
+        }
+        if (flushNeeded) {
+            flushNow();
+        }
+    }
+
+    private void addPending(long wallTimeMs, int steps) {
+        synchronized (lock) {
+            if (wallTimeMs < dayStartMs || wallTimeMs >= nextDayStartMs) {
+                updateDayBounds(wallTimeMs);
+            }
+            int minute = (int) ((wallTimeMs - dayStartMs) / 60_000L);
+            minute = Math.min(minute, MINUTES_PER_DAY - 1); // 夏令时切换当天可能超过 1440 分钟
+            int[] minutes = pending.get(cachedDate);
+            if (minutes == null) {
+                minutes = new int[MINUTES_PER_DAY];
+                pending.put(cachedDate, minutes);
+            }
+            minutes[minute] += steps;
+            hasPending = true;
+        }
+    }
+
+    private void updateDayBounds(long wallTimeMs) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(wallTimeMs);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        dayStartMs = calendar.getTimeInMillis();
+        cachedDate = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        nextDayStartMs = calendar.getTimeInMillis();
+    }
+
+    public boolean hasPendingWrites() {
+        synchronized (lock) {
+            return hasPending;
+        }
+    }
+
+    // 必要时重建汇总索引，并重放日志中尚未提交的记录，由 get() 在创建实例时调用一次
+    private void recover() {
+        try {
+            writer.submit(() -> {
+                buildRollupsIfNeeded();
+                if (journal == null) {
+                    return;
+                }
+                committedSeq = queryMeta(StepDatabase.META_JOURNAL_SEQ);
+                int[] replayed = new int[2];
+                synchronized (lock) {
+                    journal.ensureSeqAtLeast(committedSeq);
+                    journal.replay(committedSeq, (seq, wallTimeMs, steps) -> {
+                        addPending(wallTimeMs, steps);
+                        pendingMaxSeq = Math.max(pendingMaxSeq, seq);
+                        replayed[0]++;
+                        replayed[1] += steps;
+                    });
+                }
+                StepLog.d(TAG, "日志重放 {} 条记录, {} 步", replayed[0], replayed[1]);
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "日志重放失败", e);
+        }
+    }
+
+    // 恢复系统计步传感器的基线（连同基线所属日期已计入的步数），在 recover() 之后调用
+    public void restoreCounterBaseline(StepCounterBaseline target) {
+        try {
+            writer.submit(() -> {
+                SQLiteDatabase db = database.getReadableDatabase();
+                String date = null;
+                long baseline = 0;
+                try (Cursor cursor = db.query(StepDatabase.TABLE_META,
+                        new String[]{StepDatabase.COLUMN_KEY, StepDatabase.COLUMN_VALUE},
+                        StepDatabase.COLUMN_KEY + " LIKE ?",
+                        new String[]{StepDatabase.META_COUNTER_BASELINE_PREFIX + "%"},
+                        null, null, StepDatabase.COLUMN_KEY + " DESC", "1")) {
+                    if (cursor.moveToFirst()) {
+                        date = cursor.getString(0)
+                                .substring(StepDatabase.META_COUNTER_BASELINE_PREFIX.length());
+                        baseline = cursor.getLong(1);
+                    }
+                }
+                if (date != null) {
+                    int bootCount = (int) queryMeta(StepDatabase.META_COUNTER_BOOT,
+                            StepCounterBaseline.UNKNOWN_BOOT);
+                    target.restore(date, baseline, bootCount, queryDayTotal(date));
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "读取计步基线失败", e);
+        }
+    }
+
+    // 保存计步基线：基线只在首次使用、跨天、重启和清零时变化，立即写入
+    public void saveCounterBaseline(String date, long baseline, int bootCount) {
+        writer.execute(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                String key = StepDatabase.META_COUNTER_BASELINE_PREFIX + date;
+                db.delete(StepDatabase.TABLE_META, StepDatabase.COLUMN_KEY + " LIKE ? AND "
+                                + StepDatabase.COLUMN_KEY + " <> ?",
+                        new String[]{StepDatabase.META_COUNTER_BASELINE_PREFIX + "%", key});
+                putMeta(db, key, baseline);
+                putMeta(db, StepDatabase.META_COUNTER_BOOT, bootCount);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    private static void putMeta(SQLiteDatabase db, String key, long value) {
+        ContentValues meta = new ContentValues();
+        meta.put(StepDatabase.COLUMN_KEY, key);
+        meta.put(StepDatabase.COLUMN_VALUE, value);
+        db.insertWithOnConflict(StepDatabase.TABLE_META, null, meta,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private long queryMeta(String key) {
+        return queryMeta(key, 0);
+    }
+
+    private long queryMeta(String key, long defaultValue) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(StepDatabase.TABLE_META,
+                new String[]{StepDatabase.COLUMN_VALUE},
+                StepDatabase.COLUMN_KEY + " = ?", new String[]{key},
+                null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : defaultValue;
+        }
+    }
+
+    // 某日总步数：日汇总表主键查找 + 尚未写入的增量。
+    // 在写线程上执行，保证不会与正在进行的批量写入交错而漏算
+    public int loadDayTotal(String date) {
+        try {
+            return writer.submit(() -> queryDayTotal(date)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "读取日步数失败", e);
+            return 0;
+        }
+    }
+
+    private int queryDayTotal(String date) {
+        int total = 0;
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(StepDatabase.TABLE_DAYS,
+                new String[]{StepDatabase.COLUMN_STEPS},
+                StepDatabase.COLUMN_DATE + " = ?", new String[]{date},
+                null, null, null)) {
+            if (cursor.moveToFirst()) {
+                total = cursor.getInt(0);
+            }
+        }
+        synchronized (lock) {
+            int[] minutes = pending.get(date);
+            if (minutes != null) {
+                for (int steps : minutes) total += steps;
+            }
+        }
+        return total;
+    }
+
+    // 某日的分钟步数（列式文件 + 尚未写入的增量），out 长度至少 1440，返回当日总步数。
+    // 在写线程上执行，适合图表等后台查询
+    public int loadDayMinutes(String date, int[] out) {
+        try {
+            return writer.submit(() -> {
+                int total = timeSeries.readDay(date, out);
+                synchronized (lock) {
+                    int[] minutes = pending.get(date);
+                    if (minutes != null) {
+                        for (int i = 0; i < MINUTES_PER_DAY; i++) {
+                            out[i] += minutes[i];
+                            total += minutes[i];
+                        }
+                    }
+                }
+                return total;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "读取分钟步数失败", e);
+            return 0;
+        }
+    }
+
+    // 统计页数据：先写入尚未写入的增量，再从汇总索引读取。阻塞调用，不要在主线程上调用
+    public StepRollups.Report loadStatistics(String today) {
+        try {
+            return writer.submit(() -> {
+                writePending();
+                return rollups.report(today);
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "读取统计失败", e);
+            return null;
+        }
+    }
+
+    // 历史列表的一页：早于 beforeDate 的最多 limit 天，按日期倒序；beforeDate 为 null 时从最新一天开始。
+    // 日期主键上的范围查询，只读取需要的行。阻塞调用，不要在主线程上调用
+    public List<DayRecord> loadDaysBefore(String beforeDate, int limit) {
+        return loadDays(beforeDate == null ? null : StepDatabase.COLUMN_DATE + " < ?",
+                beforeDate, false, limit);
+    }
+
+    // 晚于 afterDate 的最多 limit 天（紧接 afterDate 的那些天），按日期倒序
+    public List<DayRecord> loadDaysAfter(String afterDate, int limit) {
+        return loadDays(StepDatabase.COLUMN_DATE + " > ?", afterDate, true, limit);
+    }
+
+    private List<DayRecord> loadDays(String selection, String date, boolean ascending, int limit) {
+        try {
+            return writer.submit(() -> {
+                // 包含最新数据的页先写入尚未写入的增量
+                if (date == null || ascending) {
+                    writePending();
+                }
+                List<DayRecord> days = new ArrayList<>(limit);
+                SQLiteDatabase db = database.getReadableDatabase();
+                try (Cursor cursor = db.query(StepDatabase.TABLE_DAYS,
+                        new String[]{StepDatabase.COLUMN_DATE, StepDatabase.COLUMN_STEPS},
+                        selection, date == null ? null : new String[]{date}, null, null,
+                        StepDatabase.COLUMN_DATE + (ascending ? " ASC" : " DESC"),
+                        String.valueOf(limit))) {
+                    while (cursor.moveToNext()) {
+                        days.add(new DayRecord(cursor.getString(0), cursor.getInt(1)));
+                    }
+                }
+                if (ascending) {
+                    Collections.reverse(days);
+                }
+                return days;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "读取历史记录失败", e);
+            return Collections.emptyList();
+        }
+    }
+
+    // 写线程：索引版本落后时从分钟文件重建，分钟明细缺失的部分（如旧版本数据）按日汇总表补齐
+    private void buildRollupsIfNeeded() {
+        if (queryMeta(StepDatabase.META_ROLLUP_VERSION) >= ROLLUP_VERSION) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        int goal = dailyGoal;
+        int[] days = new int[1];
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            rollupStore.clear();
+            int[] before = new int[MINUTES_PER_DAY];
+            timeSeries.scan("0000-00-00", "9999-99-99", (date, minutes) -> {
+                Arrays.fill(before, 0);
+                rollups.apply(date, before, minutes, goal);
+                days[0]++;
+            });
+            try (Cursor cursor = db.query(StepDatabase.TABLE_DAYS,
+                    new String[]{StepDatabase.COLUMN_DATE, StepDatabase.COLUMN_STEPS},
+                    null, null, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    String date = cursor.getString(0);
+                    int missing = cursor.getInt(1) - rollups.getDaySteps(date);
+                    if (missing > 0) {
+                        rollups.applyDayTotal(date, missing, goal);
+                    }
+                }
+            }
+            putMeta(db, StepDatabase.META_ROLLUP_VERSION, ROLLUP_VERSION);
+            db.setTransactionSuccessful();
+        } catch (IOException e) {
+            Log.e(TAG, "重建汇总索引失败", e);
+        } finally {
+            db.endTransaction();
+        }
+        StepLog.d(TAG, "重建汇总索引: {} 天, 耗时 {} ms", days[0], SystemClock.elapsedRealtime() - start);
+    }
+
+    // 写线程：某天写入前的分钟步数，换天时从分钟文件读取
+    private int[] rollupMinutesFor(String date) {
+        if (date.equals(rollupDate)) {
+            return rollupMinutes;
+        }
+        if (rollupMinutes == null) {
+            rollupMinutes = new int[MINUTES_PER_DAY];
+        }
+        try {
+            timeSeries.readDay(date, rollupMinutes);
+        } catch (IOException e) {
+            // 只影响有步数分钟数的统计
+            Arrays.fill(rollupMinutes, 0);
+        }
+        rollupDate = date;
+        return rollupMinutes;
+    }
+
+    // 在写线程上写入全部增量
+    public void flushNow() {
+        synchronized (lock) {
+            flushScheduled = true;
+        }
+        writer.execute(this::writePending);
+    }
+
+    // 清除某日的全部记录（用户重置步数）
+    public void clearDay(String date) {
+        // 在重置时刻取出其余日期的增量；之后记录的步数（包括该日期的）留在新的增量中，
+        // 由之后的写入任务在删除完成后提交，不会被一起删除
+        Map<String, int[]> batch;
+        long batchSeq;
+        synchronized (lock) {
+            pending.remove(date);
+            batch = pending;
+            batchSeq = pendingMaxSeq;
+            pending = new HashMap<>();
+            hasPending = false;
+        }
+        writer.execute(() -> {
+            // 先提交重置前的其余增量和日志序号，被清除日期在重置前的日志记录随之作废
+            writeBatch(batch, batchSeq);
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                String[] args = {date};
+                db.delete(StepDatabase.TABLE_DAYS, StepDatabase.COLUMN_DATE + " = ?", args);
+                rollups.removeDay(date);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            timeSeries.deleteDay(date);
+            if (date.equals(rollupDate)) {
+                rollupDate = null;
+            }
+        });
+    }
+
+    // 写线程：取出全部增量，日总数与日志序号在一个事务中写入，之后追加分钟数据并回收日志
+    private void writePending() {
+        Map<String, int[]> batch;
+        long batchSeq;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (!hasPending && pendingMaxSeq <= committedSeq) {
+                return;
+            }
+            batch = pending;
+            batchSeq = pendingMaxSeq;
+            pending = new HashMap<>();
+            hasPending = false;
+        }
+        StepTrace.begin(StepTrace.FLUSH);
+        try {
+            writeBatch(batch, batchSeq);
+        } finally {
+            StepTrace.end();
+        }
+    }
+
+    private void writeBatch(Map<String, int[]> batch, long batchSeq) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = database.getWritableDatabase();
+        SQLiteStatement updateDay = db.compileStatement("UPDATE " + StepDatabase.TABLE_DAYS
+                + " SET " + StepDatabase.COLUMN_STEPS + " = " + StepDatabase.COLUMN_STEPS + " + ?"
+                + " WHERE " + StepDatabase.COLUMN_DATE + " = ?");
+        SQLiteStatement insertDay = db.compileStatement("INSERT INTO " + StepDatabase.TABLE_DAYS
+                + " (" + StepDatabase.COLUMN_DATE + ", " + StepDatabase.COLUMN_STEPS + ") VALUES (?, ?)");
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, int[]> entry : batch.entrySet()) {
+                String date = entry.getKey();
+                int dayTotal = 0;
+                for (int steps : entry.getValue()) dayTotal += steps;
+                updateDay.bindLong(1, dayTotal);
+                updateDay.bindString(2, date);
+                if (updateDay.executeUpdateDelete() == 0) {
+                    insertDay.bindString(1, date);
+                    insertDay.bindLong(2, dayTotal);
+                    insertDay.executeInsert();
+                }
+                // 分钟文件在事务提交后才追加，此时读到的正是写入前的数据
+                rollups.apply(date, rollupMinutesFor(date), entry.getValue(), dailyGoal);
+            }
+            if (batchSeq > committedSeq) {
+                putMeta(db, StepDatabase.META_JOURNAL_SEQ, batchSeq);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            updateDay.close();
+            insertDay.close();
+        }
+        committedSeq = Math.max(committedSeq, batchSeq);
+
+        // 分钟增量追加到列式文件：顺序写，每天一个文件。
+        // 在日总数提交之后进行，崩溃时最多丢失分钟明细，日总数不会重复计算
+        int minutesWritten = 0;
+        for (Map.Entry<String, int[]> entry : batch.entrySet()) {
+            try {
+                timeSeries.append(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                Log.e(TAG, "写入分钟数据失败: " + entry.getKey(), e);
+            }
+            for (int steps : entry.getValue()) {
+                if (steps != 0) minutesWritten++;
+            }
+        }
+
+        if (journal != null) {
+            synchronized (lock) {
+                journal.compact(committedSeq);
+            }
+        }
+        StepMetrics.FLUSH_NS.record(System.nanoTime() - start);
+        StepMetrics.FLUSHES.increment();
+        StepLog.d(TAG, "批量写入 {} 天, {} 个分钟桶", batch.size(), minutesWritten);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.stepcounter;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+// 汇总索引的 SQLite 存储。在写线程上使用，写入与日汇总处于同一事务中
+public class StepRollupStore implements StepRollups.Store {
+    private static final String[] COLUMNS = {
+            StepDatabase.COLUMN_BUCKET, StepDatabase.COLUMN_STEPS, StepDatabase.COLUMN_MAX,
+            StepDatabase.COLUMN_ACTIVE_MINUTES, StepDatabase.COLUMN_GOAL_DAYS};
+    private static final String WHERE_KEY = StepDatabase.COLUMN_PERIOD + " = ? AND "
+            + StepDatabase.COLUMN_BUCKET + " = ?";
+    private static final String WHERE_RANGE = StepDatabase.COLUMN_PERIOD + " = ? AND "
+            + StepDatabase.COLUMN_BUCKET + " BETWEEN ? AND ?";
+
+    private final StepDatabase database;
+    private SQLiteStatement upsert;
+    // 范围查询复用同一个桶对象
+    private final StepRollups.Bucket scratch = new StepRollups.Bucket();
+
+    public StepRollupStore(StepDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public StepRollups.Bucket get(StepRollups.Period period, String key) {
+        try (Cursor cursor = database.getReadableDatabase().query(StepDatabase.TABLE_ROLLUPS,
+                COLUMNS, WHERE_KEY, new String[]{String.valueOf(period.ordinal()), key},
+                null, null, null)) {
+            return cursor.moveToFirst() ? read(cursor, new StepRollups.Bucket()) : null;
+        }
+    }
+
+    @Override
+    public void put(StepRollups.Period period, String key, StepRollups.Bucket bucket) {
+        if (upsert == null) {
+            upsert = database.getWritableDatabase().compileStatement("INSERT OR REPLACE INTO "
+                    + StepDatabase.TABLE_ROLLUPS + " (" + StepDatabase.COLUMN_PERIOD + ", "
+                    + StepDatabase.COLUMN_BUCKET + ", " + StepDatabase.COLUMN_STEPS + ", "
+                    + StepDatabase.COLUMN_MAX + ", " + StepDatabase.COLUMN_ACTIVE_MINUTES + ", "
+                    + StepDatabase.COLUMN_GOAL_DAYS + ") VALUES (?, ?, ?, ?, ?, ?)");
+        }
+        upsert.bindLong(1, period.ordinal());
+        upsert.bindString(2, key);
+        upsert.bindLong(3, bucket.steps);
+        upsert.bindLong(4, bucket.max);
+        upsert.bindLong(5, bucket.activeMinutes);
+        upsert.bindLong(6, bucket.goalDays);
+        upsert.executeInsert();
+    }
+
+    @Override
+    public void delete(StepRollups.Period period, String key) {
+        database.getWritableDatabase().delete(StepDatabase.TABLE_ROLLUPS, WHERE_KEY,
+                new String[]{String.valueOf(period.ordinal()), key});
+    }
+
+    @Override
+    public void range(StepRollups.Period period, String fromKey, String toKey,
+                      StepRollups.Visitor visitor) {
+        if (fromKey.compareTo(toKey) > 0) {
+            return;
+        }
+        try (Cursor cursor = database.getReadableDatabase().query(StepDatabase.TABLE_ROLLUPS,
+                COLUMNS, WHERE_RANGE,
+                new String[]{String.valueOf(period.ordinal()), fromKey, toKey},
+                null, null, StepDatabase.COLUMN_BUCKET)) {
+            while (cursor.moveToNext()) {
+                visitor.onBucket(cursor.getString(0), read(cursor, scratch));
+            }
+        }
+    }
+
+    // 删除全部桶（重建索引前）
+    public void clear() {
+        database.getWritableDatabase().delete(StepDatabase.TABLE_ROLLUPS, null, null);
+    }
+
+    public void close() {
+        if (upsert != null) {
+            upsert.close();
+            upsert = null;
+        }
+    }
+
+    private static StepRollups.Bucket read(Cursor cursor, StepRollups.Bucket bucket) {
+        bucket.steps = cursor.getInt(1);
+        bucket.max = cursor.getInt(2);
+        bucket.activeMinutes = cursor.getInt(3);
+        bucket.goalDays = cursor.getInt(4);
+        return bucket;
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.stepcounter;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 步数汇总索引：按小时、天、周（周一开始）、月预聚合，随每次写入增量更新，
+ * 统计查询只读少量桶，不再扫描明细。
+ *
+ * 每个桶记录总步数、最大的子单位（小时桶为最多的一分钟，天桶为最多的一小时，周 / 月桶为最多的一天）、
+ * 有步数的分钟数和达标天数（天桶为 0 或 1）。达标按写入当时的目标判断，修改目标只影响当天。
+ *
+ * 桶的键按字符串排序即按时间排序：小时 "yyyy-MM-dd HH"，天 "yyyy-MM-dd"，周为该周周一的日期，月 "yyyy-MM"。
+ * 存储由 Store 提供（应用中为 SQLite 表，见 StepRollupStore）。非线程安全，在写线程上调用。
+ */
+public class StepRollups {
+    public enum Period { HOUR, DAY, WEEK, MONTH }
+
+    public static final class Bucket {
+        public int steps;
+        public int max;
+        public int activeMinutes;
+        public int goalDays;
+    }
+
+    public interface Store {
+        // 不存在时返回 null
+        Bucket get(Period period, String key);
+        void put(Period period, String key, Bucket bucket);
+        void delete(Period period, String key);
+        // 按键升序访问 [fromKey, toKey] 内的桶，bucket 只在回调期间有效
+        void range(Period period, String fromKey, String toKey, Visitor visitor);
+    }
+
+    public interface Visitor {
+        void onBucket(String key, Bucket bucket);
+    }
+
+    // 最近若干天的汇总
+    public static final class Summary {
+        public final int days;
+        public long steps;
+        public int activeMinutes;
+        public int goalDays;
+        // 单日最多步数
+        public int bestDay;
+
+        Summary(int days) {
+            this.days = days;
+        }
+
+        public long average() {
+            return steps / days;
+        }
+
+        public float goalRate() {
+            return goalDays * 100f / days;
+        }
+    }
+
+    // 统计页所需的全部数据
+    public static final class Report {
+        public int today;
+        public int yesterday;
+        public int dayBefore;
+        public Summary last7;
+        public Summary last30;
+        public Summary last365;
+        // 截至今天（今天尚未达标时截至昨天）连续达标的天数
+        public int streak;
+    }
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final String FIRST_MONTH = "0000-00";
+
+    private final Store store;
+
+    public StepRollups(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * 把某天的分钟增量计入各级桶。minutes 为写入前该天的分钟步数，返回时已加上增量，
+     * 调用方可以缓存它用于同一天的下一次写入。dailyGoal <= 0 表示不设目标。
+     */
+    public void apply(String date, int[] minutes, int[] deltas, int dailyGoal) {
+        int dayDelta = 0;
+        int activeDelta = 0;
+        int maxHour = 0;
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            Bucket bucket = null;
+            int from = hour * MINUTES_PER_HOUR;
+            for (int m = from; m < from + MINUTES_PER_HOUR; m++) {
+                int delta = deltas[m];
+                if (delta == 0) continue;
+                if (bucket == null) {
+                    bucket = getOrEmpty(Period.HOUR, hourKey(date, hour));
+                }
+                if (minutes[m] == 0) {
+                    bucket.activeMinutes++;
+                    activeDelta++;
+                }
+                minutes[m] += delta;
+                bucket.steps += delta;
+                bucket.max = Math.max(bucket.max, minutes[m]);
+                dayDelta += delta;
+            }
+            if (bucket != null) {
+                store.put(Period.HOUR, hourKey(date, hour), bucket);
+                maxHour = Math.max(maxHour, bucket.steps);
+            }
+        }
+        updateDay(date, dayDelta, activeDelta, maxHour, dailyGoal);
+    }
+
+    // 只有日总数、没有分钟明细的历史数据，只计入天 / 周 / 月桶
+    public void applyDayTotal(String date, int steps, int dailyGoal) {
+        updateDay(date, steps, 0, 0, dailyGoal);
+    }
+
+    // 目标修改后重新判断某天是否达标
+    public void refreshGoal(String date, int dailyGoal) {
+        updateDay(date, 0, 0, 0, dailyGoal);
+    }
+
+    private void updateDay(String date, int steps, int activeMinutes, int maxHour, int dailyGoal) {
+        Bucket day = store.get(Period.DAY, date);
+        if (day == null) {
+            if (steps == 0) {
+                return;
+            }
+            day = new Bucket();
+        }
+        int wasMet = day.goalDays;
+        day.steps += steps;
+        day.activeMinutes += activeMinutes;
+        day.max = Math.max(day.max, maxHour);
+        day.goalDays = dailyGoal > 0 && day.steps >= dailyGoal ? 1 : 0;
+        int goalDelta = day.goalDays - wasMet;
+        if (steps == 0 && goalDelta == 0) {
+            return;
+        }
+        store.put(Period.DAY, date, day);
+        String[] parentKeys = {weekKey(date), monthKey(date)};
+        Period[] parents = {Period.WEEK, Period.MONTH};
+        for (int i = 0; i < parents.length; i++) {
+            Bucket parent = getOrEmpty(parents[i], parentKeys[i]);
+            parent.steps += steps;
+            parent.activeMinutes += activeMinutes;
+            parent.max = Math.max(parent.max, day.steps);
+            parent.goalDays += goalDelta;
+            store.put(parents[i], parentKeys[i], parent);
+        }
+    }
+
+    // 删除某天（用户重置步数）：删除它的小时桶和天桶，所在的周 / 月从剩余的天桶重新汇总
+    public void removeDay(String date) {
+        if (store.get(Period.DAY, date) == null) {
+            return;
+        }
+        List<String> hours = new ArrayList<>();
+        store.range(Period.HOUR, hourKey(date, 0), hourKey(date, HOURS_PER_DAY - 1),
+                (key, bucket) -> hours.add(key));
+        for (String key : hours) {
+            store.delete(Period.HOUR, key);
+        }
+        store.delete(Period.DAY, date);
+        String week = weekKey(date);
+        rebuild(Period.WEEK, week, week, addDays(week, 6));
+        String month = monthKey(date);
+        rebuild(Period.MONTH, month, month + "-01", lastDayOfMonth(month));
+    }
+
+    private void rebuild(Period period, String key, String fromDate, String toDate) {
+        Bucket total = new Bucket();
+        store.range(Period.DAY, fromDate, toDate, (day, bucket) -> {
+            total.steps += bucket.steps;
+            total.activeMinutes += bucket.activeMinutes;
+            total.max = Math.max(total.max, bucket.steps);
+            total.goalDays += bucket.goalDays;
+        });
+        if (total.steps == 0 && total.goalDays == 0) {
+            store.delete(period, key);
+        } else {
+            store.put(period, key, total);
+        }
+    }
+
+    public Bucket getDay(String date) {
+        return store.get(Period.DAY, date);
+    }
+
+    public int getDaySteps(String date) {
+        Bucket day = store.get(Period.DAY, date);
+        return day == null ? 0 : day.steps;
+    }
+
+    /**
+     * 截至 today（含）最近 days 天的汇总。跨月时拆成首尾两段天桶和中间的整月桶，
+     * 365 天最多读取约 31 + 12 + 31 个桶。
+     */
+    public Summary lastDays(String today, int days) {
+        Summary summary = new Summary(days);
+        Visitor add = (key, bucket) -> {
+            summary.steps += bucket.steps;
+            summary.activeMinutes += bucket.activeMinutes;
+            summary.goalDays += bucket.goalDays;
+        };
+        Visitor addDay = (key, bucket) -> {
+            add.onBucket(key, bucket);
+            summary.bestDay = Math.max(summary.bestDay, bucket.steps);
+        };
+        Visitor addMonth = (key, bucket) -> {
+            add.onBucket(key, bucket);
+            summary.bestDay = Math.max(summary.bestDay, bucket.max);
+        };
+        String from = addDays(today, -(days - 1));
+        String fromMonth = monthKey(from);
+        String toMonth = monthKey(today);
+        if (fromMonth.equals(toMonth)) {
+            store.range(Period.DAY, from, today, addDay);
+            return summary;
+        }
+        String firstWholeMonth = fromMonth;
+        if (!from.endsWith("-01")) {
+            store.range(Period.DAY, from, lastDayOfMonth(fromMonth), addDay);
+            firstWholeMonth = addMonths(fromMonth, 1);
+        }
+        store.range(Period.MONTH, firstWholeMonth, addMonths(toMonth, -1), addMonth);
+        store.range(Period.DAY, toMonth + "-01", today, addDay);
+        return summary;
+    }
+
+    /**
+     * 连续达标天数。今天尚未达标不算中断，从昨天往前数；
+     * 整月达标时只读月桶，只有连续段的首尾两个月需要读天桶。
+     */
+    public int currentStreak(String today) {
+        Bucket todayBucket = store.get(Period.DAY, today);
+        boolean todayMet = todayBucket != null && todayBucket.goalDays > 0;
+        String day = todayMet ? today : addDays(today, -1);
+        String month = monthKey(day);
+        int streak = countBackwards(month + "-01", day);
+        if (streak < dayOfMonth(day)) {
+            return streak;
+        }
+        // 之前的各月：从近到远，整月达标直接累加，遇到未整月达标的月份进入天桶
+        List<String> keys = new ArrayList<>();
+        List<Integer> goalDays = new ArrayList<>();
+        store.range(Period.MONTH, FIRST_MONTH, addMonths(month, -1), (key, bucket) -> {
+            keys.add(key);
+            goalDays.add(bucket.goalDays);
+        });
+        String expected = addMonths(month, -1);
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            if (!keys.get(i).equals(expected)) {
+                break;
+            }
+            String last = lastDayOfMonth(expected);
+            if (goalDays.get(i) < dayOfMonth(last)) {
+                return streak + countBackwards(expected + "-01", last);
+            }
+            streak += dayOfMonth(last);
+            expected = addMonths(expected, -1);
+        }
+        return streak;
+    }
+
+    // 从 toDate 往前（不早于 fromDate）连续达标的天数
+    private int countBackwards(String fromDate, String toDate) {
+        List<String> met = new ArrayList<>();
+        store.range(Period.DAY, fromDate, toDate, (key, bucket) -> {
+            if (bucket.goalDays > 0) {
+                met.add(key);
+            }
+        });
+        int count = 0;
+        String expected = toDate;
+        for (int i = met.size() - 1; i >= 0 && met.get(i).equals(expected); i--) {
+            count++;
+            expected = addDays(expected, -1);
+        }
+        return count;
+    }
+
+    public Report report(String today) {
+        Report report = new Report();
+        report.today = getDaySteps(today);
+        report.yesterday = getDaySteps(addDays(today, -1));
+        report.dayBefore = getDaySteps(addDays(today, -2));
+        report.last7 = lastDays(today, 7);
+        report.last30 = lastDays(today, 30);
+        report.last365 = lastDays(today, 365);
+        report.streak = currentStreak(today);
+        return report;
+    }
+
+    private Bucket getOrEmpty(Period period, String key) {
+        Bucket bucket = store.get(period, key);
+        return bucket != null ? bucket : new Bucket();
+    }
+
+    // 以下为日期键的计算，按 UTC 日历做纯日期运算，不受时区和夏令时影响
+
+    static String hourKey(String date, int hour) {
+        return String.format(Locale.US, "%s %02d", date, hour);
+    }
+
+    static String monthKey(String date) {
+        return date.substring(0, 7);
+    }
+
+    static String weekKey(String date) {
+        Calendar calendar = parse(date);
+        // 周一为 0，周日为 6
+        int offset = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        calendar.add(Calendar.DAY_OF_MONTH, -offset);
+        return format(calendar);
+    }
+
+    static String addDays(String date, int days) {
+        Calendar calendar = parse(date);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return format(calendar);
+    }
+
+    static String addMonths(String month, int months) {
+        int index = Integer.parseInt(month.substring(0, 4)) * 12
+                + Integer.parseInt(month.substring(5, 7)) - 1 + months;
+        return String.format(Locale.US, "%04d-%02d", index / 12, index % 12 + 1);
+    }
+
+    static String lastDayOfMonth(String month) {
+        Calendar calendar = parse(month + "-01");
+        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+        return format(calendar);
+    }
+
+    private static int dayOfMonth(String date) {
+        return Integer.parseInt(date.substring(8, 10));
+    }
+
+    private static Calendar parse(String date) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        calendar.set(Integer.parseInt(date.substring(0, 4)),
+                Integer.parseInt(date.substring(5, 7)) - 1,
+                Integer.parseInt(date.substring(8, 10)));
+        return calendar;
+    }
+
+    private static String format(Calendar calendar) {
+        return String.format(Locale.US, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.stepcounter;
+
+// 设置的不可变快照，由 SettingsRepository 发布；修改通过 with* 方法得到新快照
+public final class StepSettings {
+    public static final float DEFAULT_WEIGHT_KG = 70.0f;
+    public static final float DEFAULT_HEIGHT_CM = 170.0f;
+    public static final int DEFAULT_DAILY_GOAL = 10000;
+
+    // 加载完成前使用的默认值
+    static final StepSettings DEFAULTS = new StepSettings(DEFAULT_WEIGHT_KG, DEFAULT_HEIGHT_CM,
+            DEFAULT_DAILY_GOAL, StepDetectorFactory.DEFAULT_ENGINE, 0);
+
+    public final float weightKg;
+    public final float heightCm;
+    public final int dailyGoal;
+    public final String detectorEngine;
+    // 主界面最近显示的今日步数，重新打开时先显示它
+    public final int todaySteps;
+
+    StepSettings(float weightKg, float heightCm, int dailyGoal, String detectorEngine, int todaySteps) {
+        this.weightKg = weightKg;
+        this.heightCm = heightCm;
+        this.dailyGoal = dailyGoal;
+        this.detectorEngine = detectorEngine;
+        this.todaySteps = todaySteps;
+    }
+
+    public StepSettings withBody(float weightKg, float heightCm) {
+        return new StepSettings(weightKg, heightCm, dailyGoal, detectorEngine, todaySteps);
+    }
+
+    public StepSettings withDailyGoal(int goal) {
+        return new StepSettings(weightKg, heightCm, goal, detectorEngine, todaySteps);
+    }
+
+    public StepSettings withDetectorEngine(String engine) {
+        return new StepSettings(weightKg, heightCm, dailyGoal, engine, todaySteps);
+    }
+
+    public StepSettings withTodaySteps(int steps) {
+        return new StepSettings(weightKg, heightCm, dailyGoal, detectorEngine, steps);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StepSettings)) return false;
+        StepSettings other = (StepSettings) o;
+        return weightKg == other.weightKg && heightCm == other.heightCm
+                && dailyGoal == other.dailyGoal && todaySteps == other.todaySteps
+                && detectorEngine.equals(other.detectorEngine);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(weightKg);
+        result = 31 * result + Float.floatToIntBits(heightCm);
+        result = 31 * result + dailyGoal;
+        result = 31 * result + detectorEngine.hashCode();
+        return 31 * result + todaySteps;
+    }
+
+    // 目标完成百分比，最多 100
+    public int goalProgress(int steps) {
+        if (dailyGoal <= 0) return 0;
+        return Math.min((int) ((float) steps / dailyGoal * 100), 100);
+    }
+}
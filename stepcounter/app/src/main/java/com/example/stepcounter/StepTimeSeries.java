@@ -0,0 +1,235 @@
+package com.example.stepcounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分钟级步数时间序列，按天一个只追加文件 (yyyy-MM-dd.sts)。
+ *
+ * 文件以 4 字节魔数开头，之后是连续的记录，每条记录只描述一个有步数的分钟：
+ * zigzag varint(与上一条记录的分钟差) + zigzag varint(与上一条记录的步数差)。
+ * 分钟差为 0 表示同一分钟的追加增量，读取时累加。没有步数的分钟不占空间，
+ * 一天通常只有几百字节，一年的数据远小于 1MB；范围查询按日期顺序读取文件即可。
+ */
+public class StepTimeSeries {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final String SUFFIX = ".sts";
+    private static final byte[] MAGIC = {'S', 'T', 'S', '1'};
+
+    public interface DayVisitor {
+        // minutes 为复用的数组，只在回调期间有效
+        void onDay(String date, int[] minutes);
+    }
+
+    // 每个文件末尾的编码状态，追加时需要
+    private static class TailState {
+        int lastMinute = 0;
+        int lastCount = 0;
+        long length = MAGIC.length;
+    }
+
+    private final File dir;
+    private final Map<String, TailState> tails = new HashMap<>();
+    private final byte[] scratch = new byte[10];
+
+    public StepTimeSeries(File dir) {
+        this.dir = dir;
+    }
+
+    // 把某天的分钟增量按分钟顺序追加到文件末尾
+    public synchronized void append(String date, int[] minuteDeltas) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录 " + dir);
+        }
+        File file = fileFor(date);
+        TailState tail = tails.get(date);
+        if (tail == null) {
+            tail = recoverTail(file);
+            tails.put(date, tail);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
+            if (tail.length == MAGIC.length && file.length() == 0) {
+                out.write(MAGIC);
+            }
+            for (int minute = 0; minute < minuteDeltas.length; minute++) {
+                int count = minuteDeltas[minute];
+                if (count == 0) continue;
+                tail.length += writeVarint(out, zigzag(minute - tail.lastMinute));
+                tail.length += writeVarint(out, zigzag(count - tail.lastCount));
+                tail.lastMinute = minute;
+                tail.lastCount = count;
+            }
+        }
+    }
+
+    // 读取某天的分钟步数到 out（长度至少 MINUTES_PER_DAY），返回当天总步数
+    public synchronized int readDay(String date, int[] out) throws IOException {
+        Arrays.fill(out, 0, MINUTES_PER_DAY, 0);
+        File file = fileFor(date);
+        if (!file.exists()) {
+            return 0;
+        }
+        int total = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            if (!readMagic(in)) {
+                return 0;
+            }
+            int minute = 0;
+            int count = 0;
+            while (true) {
+                long gap = readVarint(in);
+                long delta = gap < 0 ? -1 : readVarint(in);
+                if (delta < 0) break; // 文件末尾或末尾记录不完整
+                minute += unzigzag(gap);
+                count += unzigzag(delta);
+                if (minute >= 0 && minute < MINUTES_PER_DAY) {
+                    out[minute] += count;
+                    total += count;
+                }
+            }
+        }
+        return total;
+    }
+
+    // 按日期顺序扫描 [fromDate, toDate] 范围内的每一天（日期格式 yyyy-MM-dd，可直接按字符串比较）
+    public synchronized void scan(String fromDate, String toDate, DayVisitor visitor) throws IOException {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        Arrays.sort(names);
+        int[] minutes = new int[MINUTES_PER_DAY];
+        for (String name : names) {
+            if (!name.endsWith(SUFFIX)) continue;
+            String date = name.substring(0, name.length() - SUFFIX.length());
+            if (date.compareTo(fromDate) < 0 || date.compareTo(toDate) > 0) continue;
+            readDay(date, minutes);
+            visitor.onDay(date, minutes);
+        }
+    }
+
+    public synchronized void deleteDay(String date) {
+        tails.remove(date);
+        File file = fileFor(date);
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    // 全部文件占用的字节数
+    public synchronized long sizeOnDisk() {
+        File[] files = dir.listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) total += file.length();
+        }
+        return total;
+    }
+
+    private File fileFor(String date) {
+        return new File(dir, date + SUFFIX);
+    }
+
+    // 顺序读出文件末尾的编码状态；若末尾记录因进程被杀而不完整，截断到最后一条完整记录。
+    // 魔数没写完（创建文件时进程被杀）按空文件处理，截断后由 append 重新写入魔数
+    private TailState recoverTail(File file) throws IOException {
+        TailState tail = new TailState();
+        if (!file.exists() || file.length() == 0) {
+            return tail;
+        }
+        if (file.length() < MAGIC.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+            }
+            return tail;
+        }
+        long validLength;
+        try (CountingInputStream in = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (!readMagic(in)) {
+                throw new IOException(file + " 不是步数时间序列文件");
+            }
+            validLength = in.count;
+            while (true) {
+                long gap = readVarint(in);
+                long delta = gap < 0 ? -1 : readVarint(in);
+                if (delta < 0) break;
+                tail.lastMinute += unzigzag(gap);
+                tail.lastCount += unzigzag(delta);
+                validLength = in.count;
+            }
+        }
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        tail.length = validLength;
+        return tail;
+    }
+
+    private static boolean readMagic(InputStream in) throws IOException {
+        for (byte b : MAGIC) {
+            if (in.read() != b) return false;
+        }
+        return true;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(long encoded) {
+        int value = (int) encoded;
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int writeVarint(OutputStream out, int value) throws IOException {
+        int n = 0;
+        while ((value & ~0x7F) != 0) {
+            scratch[n++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        scratch[n++] = (byte) value;
+        out.write(scratch, 0, n);
+        return n;
+    }
+
+    // 读取一个无符号 varint，遇到文件末尾（含不完整的 varint）返回 -1
+    private static long readVarint(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) return -1;
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IOException("varint 过长");
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.stepcounter;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * systrace / Perfetto 的跟踪区段和计数器轨道。
+ * TRACE_ENABLED 是编译期常量（debug 构建开启，release 默认关闭），关闭时调用处的分支和方法体
+ * 都会被编译器 / R8 删除。区段名使用字符串常量，调用时不做拼接。
+ *
+ * 区段按批次而不是按样本划分：每个样本的工作只有几十纳秒，逐样本开关区段的开销比被测的工作还大。
+ *
+ * 启动区段（*Startup 方法）每个进程只有一次，不受 TRACE_ENABLED 控制，
+ * 供 macrobenchmark 在 release 包上测量服务启动和首个样本的时间。
+ */
+public final class StepTrace {
+    public static final boolean ENABLED = BuildConfig.TRACE_ENABLED;
+
+    public static final String BATCH = "StepCounter:batch";
+    public static final String DETECT = "StepCounter:detectSteps";
+    public static final String PUBLISH = "StepCounter:publish";
+    public static final String NOTIFY = "StepCounter:notify";
+    public static final String FLUSH = "StepCounter:flush";
+
+    // 服务 onCreate（主线程）、传感器线程上的初始化、从服务创建到收到第一个传感器事件
+    public static final String SERVICE_CREATE = "StepCounter:serviceCreate";
+    public static final String SERVICE_INIT = "StepCounter:serviceInit";
+    public static final String FIRST_SAMPLE = "StepCounter:firstSample";
+
+    public static final String COUNTER_STEPS = "StepCounter:steps";
+    public static final String COUNTER_THRESHOLD = "StepCounter:threshold_x100";
+    public static final String COUNTER_STILL = "StepCounter:still";
+    public static final String COUNTER_RATE = "StepCounter:sample_rate_hz";
+
+    private StepTrace() {
+    }
+
+    public static void begin(String section) {
+        if (ENABLED) {
+            Trace.beginSection(section);
+        }
+    }
+
+    public static void end() {
+        if (ENABLED) {
+            Trace.endSection();
+        }
+    }
+
+    public static void beginStartup(String section) {
+        Trace.beginSection(section);
+    }
+
+    public static void endStartup() {
+        Trace.endSection();
+    }
+
+    // 跨线程的异步区段需要 API 29
+    public static void beginAsyncStartup(String section, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(section, cookie);
+        }
+    }
+
+    public static void endAsyncStartup(String section, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(section, cookie);
+        }
+    }
+
+    // 计数器轨道需要 API 29；没有在抓取跟踪时直接返回
+    public static void counter(String name, long value) {
+        if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && Trace.isEnabled()) {
+            Trace.setCounter(name, value);
+        }
+    }
+}
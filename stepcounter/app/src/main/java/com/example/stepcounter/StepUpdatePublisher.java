@@ -0,0 +1,155 @@
+package com.example.stepcounter;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 步数对外发布的唯一出口：前台通知与应用内广播。
+ * 由传感器线程调用，方法均为同步方法，可以从任意线程安全调用，主线程不参与逐样本的处理。
+ *
+ * 通知复用同一个 Builder，并按最小间隔合并刷新（亮屏/灭屏间隔可配置），
+ * 间隔内的更新只保留最新值，由延迟任务在间隔到期时补发；
+ * 没有注册接收器时不发送广播。停止服务时调用 stop() 广播最终步数并移除通知。
+ */
+public class StepUpdatePublisher {
+    public static final long DEFAULT_INTERVAL_SCREEN_ON_MS = 1000;
+    public static final long DEFAULT_INTERVAL_SCREEN_OFF_MS = 5000;
+
+    // 进程内已注册的步数接收器数量，以及最近一次发布的步数（供新注册的接收器立即同步）
+    private static final AtomicInteger receiverCount = new AtomicInteger();
+    private static volatile int lastPublishedSteps = -1;
+
+    private final int notificationId;
+    private final Handler handler;
+    private final NotificationManager notificationManager;
+    private final LocalBroadcastManager broadcastManager;
+    private final NotificationCompat.Builder notificationBuilder;
+    private final Runnable refreshRunnable = this::refreshNotification;
+
+    private long screenOnIntervalMs = DEFAULT_INTERVAL_SCREEN_ON_MS;
+    private long screenOffIntervalMs = DEFAULT_INTERVAL_SCREEN_OFF_MS;
+    private boolean screenOn = true;
+    private int latestSteps = 0;
+    private int notifiedSteps = -1;
+    private long lastNotifyTime = 0;
+    private boolean refreshScheduled = false;
+    private boolean stopped = false;
+
+    public StepUpdatePublisher(Context context, String channelId, int notificationId, Handler handler) {
+        Context appContext = context.getApplicationContext();
+        this.notificationId = notificationId;
+        this.handler = handler;
+        this.notificationManager = appContext.getSystemService(NotificationManager.class);
+        this.broadcastManager = LocalBroadcastManager.getInstance(appContext);
+        this.notificationBuilder = new NotificationCompat.Builder(appContext, channelId)
+                .setContentTitle("智能计步器")
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOnlyAlertOnce(true)
+                .setShowWhen(false);
+    }
+
+    // 注册步数更新接收器，代替直接调用 LocalBroadcastManager，以便发布端知道是否有人在听
+    public static void registerReceiver(Context context, BroadcastReceiver receiver) {
+        LocalBroadcastManager manager = LocalBroadcastManager.getInstance(context);
+        manager.registerReceiver(receiver, new IntentFilter(StepCounterService.ACTION_STEP_UPDATE));
+        receiverCount.incrementAndGet();
+        int steps = lastPublishedSteps;
+        if (steps >= 0) {
+            manager.sendBroadcast(createUpdateIntent(steps));
+        }
+    }
+
+    public static void unregisterReceiver(Context context, BroadcastReceiver receiver) {
+        LocalBroadcastManager.getInstance(context).unregisterReceiver(receiver);
+        receiverCount.decrementAndGet();
+    }
+
+    private static Intent createUpdateIntent(int steps) {
+        Intent intent = new Intent(StepCounterService.ACTION_STEP_UPDATE);
+        intent.putExtra(StepCounterService.EXTRA_STEP_COUNT, steps);
+        return intent;
+    }
+
+    public synchronized void setIntervals(long screenOnMs, long screenOffMs) {
+        screenOnIntervalMs = screenOnMs;
+        screenOffIntervalMs = screenOffMs;
+    }
+
+    public synchronized void setScreenOn(boolean on) {
+        screenOn = on;
+    }
+
+    public synchronized void publish(int steps) {
+        StepTrace.begin(StepTrace.PUBLISH);
+        long start = System.nanoTime();
+        latestSteps = steps;
+        lastPublishedSteps = steps;
+        if (receiverCount.get() > 0) {
+            broadcastManager.sendBroadcast(createUpdateIntent(steps));
+            StepMetrics.BROADCASTS.increment();
+        }
+
+        long wait = lastNotifyTime + currentInterval() - SystemClock.elapsedRealtime();
+        if (lastNotifyTime == 0 || wait <= 0) {
+            refreshNotification();
+        } else if (!refreshScheduled) {
+            // 间隔内的更新合并到一次延迟刷新中
+            refreshScheduled = true;
+            handler.postDelayed(refreshRunnable, wait);
+        }
+        StepMetrics.PUBLISH_NS.record(System.nanoTime() - start);
+        StepTrace.end();
+    }
+
+    // 服务停止时调用：广播最终步数，不再刷新通知。前台通知随服务移除后再 notify 会留下无法清除的通知，
+    // 这里同时取消可能已经补发的那一条
+    public synchronized void stop() {
+        stopped = true;
+        handler.removeCallbacks(refreshRunnable);
+        refreshScheduled = false;
+        if (receiverCount.get() > 0) {
+            broadcastManager.sendBroadcast(createUpdateIntent(latestSteps));
+        }
+        if (notificationManager != null) {
+            notificationManager.cancel(notificationId);
+        }
+    }
+
+    public synchronized Notification buildNotification(int steps) {
+        return notificationBuilder
+                .setContentText("今日步数: " + steps + " 步")
+                .build();
+    }
+
+    private synchronized void refreshNotification() {
+        handler.removeCallbacks(refreshRunnable);
+        refreshScheduled = false;
+        lastNotifyTime = SystemClock.elapsedRealtime();
+        if (stopped || latestSteps == notifiedSteps || notificationManager == null) {
+            return;
+        }
+        notifiedSteps = latestSteps;
+        StepTrace.begin(StepTrace.NOTIFY);
+        long start = System.nanoTime();
+        notificationManager.notify(notificationId, buildNotification(latestSteps));
+        StepMetrics.NOTIFY_NS.record(System.nanoTime() - start);
+        StepTrace.end();
+        StepMetrics.NOTIFICATIONS.increment();
+    }
+
+    private long currentInterval() {
+        return screenOn ? screenOnIntervalMs : screenOffIntervalMs;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.stepcounter;
+
+/**
+ * 过零检测引擎：合加速度经 biquad 带通（范围见 StepDetectorConfig）后，
+ * 信号先低于 -迟滞 再升过 +迟滞 记为一次上穿过零，间隔不小于最小步间间隔时计一步。
+ * 每个样本只有十几次乘加，是最便宜的引擎。
+ * 滤波系数和静止窗口长度按时间戳实测的采样率设计。
+ */
+public class ZeroCrossingStepDetector implements StepDetector {
+    private final long minStepInterval; // ns
+    private final long maxStepInterval; // ns
+    private final float hysteresis;
+    private final float stillnessThreshold;
+    private final long stillnessTime; // ns
+    private SlidingWindowStats stillnessWindow;
+    private final BiquadFilter highPass;
+    private final BiquadFilter lowPass;
+    private final float configRateHz;
+    private final int configStillnessWindow;
+    private final SampleRateEstimator rateEstimator = new SampleRateEstimator();
+    private float designRateHz;
+    private final long[] singleTimestamp = new long[1];
+    private final long[] singleStep = new long[1];
+
+    private boolean filterPrimed = false;
+    private boolean armed = false;
+    private long lastStepTime = Long.MIN_VALUE / 2;
+    private long lastMovementTime = 0;
+    private boolean isDeviceStill = false;
+    // 上穿前的波谷深度，以及步频 / 信号质量（波谷深度与迟滞之比）的指数平均
+    private float trough = 0;
+    private float stepIntervalNs = 0;
+    private float signalQuality = 0;
+
+    public ZeroCrossingStepDetector() {
+        this(StepDetectorConfig.DEFAULT);
+    }
+
+    public ZeroCrossingStepDetector(StepDetectorConfig config) {
+        minStepInterval = config.minStepIntervalMs * 1_000_000L;
+        maxStepInterval = config.maxStepIntervalMs * 1_000_000L;
+        hysteresis = config.zeroCrossingHysteresis;
+        stillnessThreshold = config.stillnessThreshold;
+        stillnessTime = config.stillnessTimeMs * 1_000_000L;
+        configRateHz = config.sampleRateHz;
+        configStillnessWindow = config.stillnessWindow;
+        designRateHz = config.sampleRateHz;
+        stillnessWindow = new SlidingWindowStats(config.stillnessWindow);
+        highPass = BiquadFilter.highPass(config.sampleRateHz, config.bandPassLowHz,
+                BiquadFilter.BUTTERWORTH_Q);
+        lowPass = BiquadFilter.lowPass(config.sampleRateHz, config.bandPassHighHz,
+                BiquadFilter.BUTTERWORTH_Q);
+    }
+
+    @Override
+    public boolean detectStep(float[] accelerationData, long timestamp) {
+        if (accelerationData == null || accelerationData.length < 3) {
+            return false;
+        }
+        singleTimestamp[0] = timestamp;
+        return detectSteps(accelerationData, singleTimestamp, 1, singleStep) > 0;
+    }
+
+    @Override
+    public int detectSteps(float[] xyz, long[] timestamps, int n, long[] outStepTimestamps) {
+        boolean isFilterPrimed = filterPrimed;
+        boolean isArmed = armed;
+        long lastStep = lastStepTime;
+        long lastMovement = lastMovementTime;
+        boolean still = isDeviceStill;
+        SlidingWindowStats window = stillnessWindow;
+        final SampleRateEstimator rateEstimator = this.rateEstimator;
+        final BiquadFilter highPass = this.highPass;
+        final BiquadFilter lowPass = this.lowPass;
+        final float h = hysteresis;
+        final int outCapacity = outStepTimestamps.length;
+        int steps = 0;
+
+        for (int i = 0, j = 0; i < n; i++, j += 3) {
+            long timestamp = timestamps[i];
+            rateEstimator.add(timestamp);
+            if (rateEstimator.differsFrom(designRateHz)) {
+                retune(rateEstimator.rateHz());
+                window = stillnessWindow;
+                isFilterPrimed = false;
+            }
+            float x = xyz[j];
+            float y = xyz[j + 1];
+            float z = xyz[j + 2];
+            float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+
+            if (!isFilterPrimed) {
+                // 第一个样本：以稳态初始化滤波器，避免从 0 收敛的瞬态
+                highPass.reset(magnitude);
+                lowPass.reset(0);
+                isFilterPrimed = true;
+            }
+            float s = lowPass.process(highPass.process(magnitude));
+
+            window.add(magnitude);
+            if (window.isFull()) {
+                if (window.variance() < stillnessThreshold) {
+                    if (timestamp - lastMovement > stillnessTime) {
+                        still = true;
+                        isArmed = false;
+                    }
+                } else {
+                    lastMovement = timestamp;
+                    still = false;
+                }
+            }
+            if (still) {
+                continue;
+            }
+
+            if (s < -h) {
+                isArmed = true;
+                if (s < trough) {
+                    trough = s;
+                }
+            } else if (isArmed && s > h) {
+                isArmed = false;
+                if (timestamp - lastStep >= minStepInterval) {
+                    updateCadence(timestamp - lastStep, -trough / h);
+                    lastStep = timestamp;
+                    if (steps < outCapacity) {
+                        outStepTimestamps[steps] = timestamp;
+                    }
+                    steps++;
+                }
+                trough = 0;
+            }
+        }
+
+        filterPrimed = isFilterPrimed;
+        armed = isArmed;
+        lastStepTime = lastStep;
+        lastMovementTime = lastMovement;
+        isDeviceStill = still;
+        return steps;
+    }
+
+    private void updateCadence(long interval, float quality) {
+        if (interval <= maxStepInterval) {
+            stepIntervalNs += stepIntervalNs == 0 ? interval : 0.2f * (interval - stepIntervalNs);
+        }
+        signalQuality += signalQuality == 0 ? quality : 0.2f * (quality - signalQuality);
+    }
+
+    // 按实测采样率重新设计滤波器，静止窗口保持配置中的时长
+    private void retune(float rateHz) {
+        designRateHz = rateHz;
+        highPass.setSampleRate(rateHz);
+        lowPass.setSampleRate(rateHz);
+        int windowSize = Math.max(2, Math.round(configStillnessWindow * rateHz / configRateHz));
+        if (windowSize != stillnessWindow.capacity()) {
+            stillnessWindow = new SlidingWindowStats(windowSize);
+        } else {
+            stillnessWindow.clear();
+        }
+    }
+
+    @Override
+    public boolean isDeviceStill() {
+        return isDeviceStill;
+    }
+
+    @Override
+    public float getCadenceHz() {
+        return stepIntervalNs > 0 ? 1e9f / stepIntervalNs : 0f;
+    }
+
+    @Override
+    public float getSignalQuality() {
+        return signalQuality;
+    }
+
+    @Override
+    public void reset() {
+        filterPrimed = false;
+        armed = false;
+        trough = 0;
+        stepIntervalNs = 0;
+        signalQuality = 0;
+        lastStepTime = Long.MIN_VALUE / 2;
+        lastMovementTime = 0;
+        isDeviceStill = false;
+        // 采样率重新估计，滤波器和静止窗口回到配置的设计采样率（retune 同时清空窗口）
+        rateEstimator.reset();
+        if (designRateHz != configRateHz) {
+            retune(configRateHz);
+        } else {
+            stillnessWindow.clear();
+        }
+    }
+}
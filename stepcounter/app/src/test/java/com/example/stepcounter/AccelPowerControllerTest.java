@@ -0,0 +1,86 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AccelPowerControllerTest {
+
+    // 记录状态机发出的传感器操作
+    private static class FakeActions implements AccelPowerController.Actions {
+        final List<String> calls = new ArrayList<>();
+        boolean triggerAvailable;
+        long timerDelay = -1;
+
+        FakeActions(boolean triggerAvailable) {
+            this.triggerAvailable = triggerAvailable;
+        }
+
+        @Override public void startFullRate() { calls.add("full"); }
+        @Override public void startProbe() { calls.add("probe"); }
+        @Override public void stopAccelerometer() { calls.add("stop"); }
+        @Override public boolean armWakeTrigger() { calls.add("arm"); return triggerAvailable; }
+        @Override public void disarmWakeTrigger() { calls.add("disarm"); }
+        @Override public void scheduleTimer(long delayMs) { timerDelay = delayMs; }
+        @Override public void cancelTimer() { timerDelay = -1; }
+    }
+
+    private static void stayStill(AccelPowerController controller, long from, long to) {
+        for (long t = from; t <= to; t += 1000) {
+            controller.onActiveBatch(true, t);
+        }
+    }
+
+    @Test
+    public void sustainedStillness_armsTriggerAndMotionResumes() {
+        FakeActions actions = new FakeActions(true);
+        AccelPowerController controller = new AccelPowerController(actions, 0);
+        stayStill(controller, 0, AccelPowerController.STILL_TIMEOUT_MS);
+        assertEquals(AccelPowerController.State.SLEEPING, controller.getState());
+        assertEquals(-1, actions.timerDelay); // 有触发传感器时不需要探测
+
+        controller.onWakeTrigger(100_000);
+        assertEquals(AccelPowerController.State.ACTIVE, controller.getState());
+        assertEquals(40_000, controller.getTimeInState(AccelPowerController.State.SLEEPING, 100_000));
+        assertEquals(60_000, controller.getTimeInState(AccelPowerController.State.ACTIVE, 100_000));
+    }
+
+    @Test
+    public void movementResetsStillTimer() {
+        FakeActions actions = new FakeActions(true);
+        AccelPowerController controller = new AccelPowerController(actions, 0);
+        stayStill(controller, 0, 50_000);
+        controller.onActiveBatch(false, 51_000);
+        stayStill(controller, 52_000, 100_000);
+        assertEquals(AccelPowerController.State.ACTIVE, controller.getState());
+    }
+
+    @Test
+    public void withoutTrigger_probesWithBackoff() {
+        FakeActions actions = new FakeActions(false);
+        AccelPowerController controller = new AccelPowerController(actions, 0);
+        stayStill(controller, 0, AccelPowerController.STILL_TIMEOUT_MS);
+        assertEquals(AccelPowerController.MIN_PROBE_INTERVAL_MS, actions.timerDelay);
+
+        // 探测窗口内静止：回到休眠，间隔加倍
+        controller.onTimer(80_000);
+        assertEquals(AccelPowerController.State.PROBING, controller.getState());
+        for (int i = 0; i < AccelPowerController.PROBE_SAMPLES; i++) {
+            controller.onProbeSample(0f, 0f, 9.81f, 80_000 + i * 200);
+        }
+        assertEquals(AccelPowerController.State.SLEEPING, controller.getState());
+        assertEquals(2 * AccelPowerController.MIN_PROBE_INTERVAL_MS, actions.timerDelay);
+
+        // 探测窗口内有明显运动：恢复全速
+        controller.onTimer(130_000);
+        for (int i = 0; i < AccelPowerController.PROBE_SAMPLES; i++) {
+            controller.onProbeSample(0f, 0f, i % 2 == 0 ? 7f : 13f, 130_000 + i * 200);
+        }
+        assertEquals(AccelPowerController.State.ACTIVE, controller.getState());
+        assertEquals("full", actions.calls.get(actions.calls.size() - 1));
+        assertEquals(2, controller.getEntries(AccelPowerController.State.PROBING));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.stepcounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 一段录制的加速度会话。时间戳为 SensorEvent.timestamp（纳秒）。
+ *
+ * CSV 格式：每行 timestamp,x,y,z[,step]，step 为 1 表示该样本处标注了一步；
+ * 以 # 开头的行为注释，"# ground_truth_steps=N" 可直接给出总步数标注；首行可为表头。
+ * 二进制格式 (.bin)：int magic 'ACCT'、int 版本、int 样本数、int 标注步数(-1 未知)，
+ * 随后每个样本 long 时间戳 + 3 个 float + 1 字节标注，均为大端序。
+ */
+public class AccelTrace {
+    private static final int MAGIC = 0x41434354; // "ACCT"
+    private static final int VERSION = 1;
+    private static final String GROUND_TRUTH_KEY = "ground_truth_steps=";
+
+    public final String name;
+    public final float[] xyz;
+    public final long[] timestampsNs;
+    public final boolean[] stepLabels;
+    public final int size;
+    // 标注步数，未知时为 -1
+    public final int groundTruthSteps;
+
+    public AccelTrace(String name, float[] xyz, long[] timestampsNs, boolean[] stepLabels,
+                      int size, int groundTruthSteps) {
+        this.name = name;
+        this.xyz = xyz;
+        this.timestampsNs = timestampsNs;
+        this.stepLabels = stepLabels;
+        this.size = size;
+        this.groundTruthSteps = groundTruthSteps;
+    }
+
+    public long durationNs() {
+        return size < 2 ? 0 : timestampsNs[size - 1] - timestampsNs[0];
+    }
+
+    public static AccelTrace load(File file) throws IOException {
+        return file.getName().endsWith(".bin") ? readBinary(file) : readCsv(file);
+    }
+
+    public static AccelTrace readCsv(File file) throws IOException {
+        Builder builder = new Builder(file.getName());
+        int declaredSteps = -1;
+        boolean anyLabel = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.startsWith("#")) {
+                    int idx = line.indexOf(GROUND_TRUTH_KEY);
+                    if (idx >= 0) {
+                        declaredSteps = Integer.parseInt(
+                                line.substring(idx + GROUND_TRUTH_KEY.length()).trim());
+                    }
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (lineNo == 1 && !Character.isDigit(parts[0].trim().charAt(0))) {
+                    continue; // 表头
+                }
+                if (parts.length < 4) {
+                    throw new IOException(file.getName() + ":" + lineNo + " 字段不足: " + line);
+                }
+                boolean label = parts.length > 4 && "1".equals(parts[4].trim());
+                anyLabel |= label;
+                builder.add(Long.parseLong(parts[0].trim()),
+                        Float.parseFloat(parts[1].trim()),
+                        Float.parseFloat(parts[2].trim()),
+                        Float.parseFloat(parts[3].trim()),
+                        label);
+            }
+        }
+        return builder.build(anyLabel ? -1 : declaredSteps);
+    }
+
+    public static AccelTrace readBinary(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file.getName() + " 不是加速度轨迹文件");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file.getName() + " 不支持的版本: " + version);
+            }
+            int count = in.readInt();
+            int groundTruth = in.readInt();
+            float[] xyz = new float[count * 3];
+            long[] timestamps = new long[count];
+            boolean[] labels = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = in.readLong();
+                xyz[i * 3] = in.readFloat();
+                xyz[i * 3 + 1] = in.readFloat();
+                xyz[i * 3 + 2] = in.readFloat();
+                labels[i] = in.readByte() != 0;
+            }
+            return new AccelTrace(file.getName(), xyz, timestamps, labels, count, groundTruth);
+        }
+    }
+
+    public void writeBinary(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(groundTruthSteps);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(timestampsNs[i]);
+                out.writeFloat(xyz[i * 3]);
+                out.writeFloat(xyz[i * 3 + 1]);
+                out.writeFloat(xyz[i * 3 + 2]);
+                out.writeByte(stepLabels[i] ? 1 : 0);
+            }
+        }
+    }
+
+    // 标注步数：优先使用显式总数，否则统计逐样本标注
+    public int labelledSteps() {
+        if (groundTruthSteps >= 0) {
+            return groundTruthSteps;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (stepLabels[i]) count++;
+        }
+        return count;
+    }
+
+    public static class Builder {
+        private final String name;
+        private float[] xyz = new float[3 * 1024];
+        private long[] timestamps = new long[1024];
+        private boolean[] labels = new boolean[1024];
+        private int size = 0;
+
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder add(long timestampNs, float x, float y, float z, boolean stepLabel) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                xyz = Arrays.copyOf(xyz, capacity * 3);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+            }
+            xyz[size * 3] = x;
+            xyz[size * 3 + 1] = y;
+            xyz[size * 3 + 2] = z;
+            timestamps[size] = timestampNs;
+            labels[size] = stepLabel;
+            size++;
+            return this;
+        }
+
+        public AccelTrace build(int groundTruthSteps) {
+            return new AccelTrace(name, Arrays.copyOf(xyz, size * 3),
+                    Arrays.copyOf(timestamps, size), Arrays.copyOf(labels, size),
+                    size, groundTruthSteps);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HistoryPagerTest {
+
+    // 按日期升序保存的内存数据源，记录每次查询读到的行数
+    private static class MemorySource implements HistoryPager.Source {
+        final List<DayRecord> days = new ArrayList<>();
+        int maxRowsRead = 0;
+
+        MemorySource(String first, int count) {
+            String date = first;
+            for (int i = 0; i < count; i++) {
+                days.add(new DayRecord(date, 1000 + i));
+                date = StepRollups.addDays(date, 1);
+            }
+        }
+
+        @Override public List<DayRecord> loadBefore(String date, int limit) {
+            List<DayRecord> page = new ArrayList<>();
+            for (int i = days.size() - 1; i >= 0 && page.size() < limit; i--) {
+                if (date == null || days.get(i).date.compareTo(date) < 0) page.add(days.get(i));
+            }
+            maxRowsRead = Math.max(maxRowsRead, page.size());
+            return page;
+        }
+
+        @Override public List<DayRecord> loadAfter(String date, int limit) {
+            List<DayRecord> page = new ArrayList<>();
+            for (DayRecord day : days) {
+                if (day.date.compareTo(date) > 0 && page.size() < limit) page.add(0, day);
+            }
+            maxRowsRead = Math.max(maxRowsRead, page.size());
+            return page;
+        }
+    }
+
+    private static void assertContiguousDescending(List<DayRecord> items) {
+        for (int i = 1; i < items.size(); i++) {
+            assertEquals(items.get(i - 1).date, StepRollups.addDays(items.get(i).date, 1));
+        }
+    }
+
+    @Test
+    public void scrollingFiveYears_keepsBoundedWindowAndReloadsBothWays() {
+        MemorySource source = new MemorySource("2020-01-01", 5 * 365 + 1);
+        List<List<DayRecord>> published = new ArrayList<>();
+        HistoryPager pager = new HistoryPager(source, Runnable::run, Runnable::run, published::add);
+        pager.refresh();
+        assertEquals(HistoryPager.PAGE_SIZE, pager.getItems().size());
+        assertEquals("2024-12-30", pager.getItems().get(0).date);
+
+        // 一直向下滚动到最早一天：每次只看最后一屏
+        int guard = 0;
+        while (!pager.getItems().get(pager.getItems().size() - 1).date.equals("2020-01-01")) {
+            int size = pager.getItems().size();
+            pager.onVisibleRange(size - 10, size - 1);
+            assertTrue(pager.getItems().size() <= HistoryPager.MAX_ITEMS);
+            assertContiguousDescending(pager.getItems());
+            assertTrue(++guard < 100);
+        }
+        int publishedBefore = published.size();
+        pager.onVisibleRange(pager.getItems().size() - 10, pager.getItems().size() - 1);
+        assertEquals("已到最早一天，不再加载", publishedBefore, published.size());
+
+        // 再滚回顶部，丢弃的新数据重新加载
+        guard = 0;
+        while (!pager.getItems().get(0).date.equals("2024-12-30")) {
+            pager.onVisibleRange(0, 9);
+            assertTrue(pager.getItems().size() <= HistoryPager.MAX_ITEMS);
+            assertContiguousDescending(pager.getItems());
+            assertTrue(++guard < 100);
+        }
+        assertEquals(HistoryPager.PAGE_SIZE, source.maxRowsRead);
+    }
+
+    @Test
+    public void refresh_dropsResultsOfStaleLoads() {
+        MemorySource source = new MemorySource("2024-01-01", 200);
+        List<Runnable> queued = new ArrayList<>();
+        HistoryPager pager = new HistoryPager(source, queued::add, Runnable::run, items -> { });
+        pager.refresh();
+        Runnable stale = queued.remove(0);
+        source.days.remove(source.days.size() - 1);
+        pager.refresh();
+        queued.remove(0).run();
+        stale.run();
+        assertEquals(HistoryPager.PAGE_SIZE, pager.getItems().size());
+        assertEquals("2024-07-17", pager.getItems().get(0).date);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class LogHistogramTest {
+
+    @Test
+    public void buckets_stayWithinRelativeError() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 100, 1_000, 123_456, 9_876_543_210L}) {
+            long low = LogHistogram.lowerBound(LogHistogram.bucketOf(value));
+            long high = LogHistogram.lowerBound(LogHistogram.bucketOf(value) + 1);
+            assertTrue(value + " in [" + low + ", " + high + ")", low <= value && value < high);
+            assertTrue(value + " width " + (high - low), high - low <= Math.max(1, low / 16));
+        }
+    }
+
+    @Test
+    public void percentiles_matchUniformDistribution() {
+        LogHistogram histogram = new LogHistogram("test");
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5000, histogram.percentile(50), 5000 / 16);
+        assertEquals(9900, histogram.percentile(99), 9900 / 16);
+        assertEquals(10_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        LogHistogram histogram = new LogHistogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(999, histogram.getMax());
+    }
+
+    @Test
+    public void metricsDump_listsCountersAndHistograms() {
+        StepMetrics.reset();
+        StepMetrics.STEPS.add(42);
+        StepMetrics.FLUSH_NS.record(1_000_000);
+        StringWriter out = new StringWriter();
+        StepMetrics.dump(new PrintWriter(out));
+        assertTrue(out.toString(), out.toString().contains("steps=42"));
+        assertTrue(out.toString(), out.toString().contains("flush_ns count=1"));
+    }
+}
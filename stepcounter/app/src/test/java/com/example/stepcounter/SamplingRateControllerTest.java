@@ -0,0 +1,85 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SamplingRateControllerTest {
+
+    private static class FakeActions implements SamplingRateController.Actions {
+        final List<SamplingRateController.Rate> rates = new ArrayList<>();
+
+        @Override public void setRate(SamplingRateController.Rate rate) { rates.add(rate); }
+    }
+
+    // 每秒一批，每批两步
+    private static void walk(SamplingRateController controller, float cadenceHz, long from, long to) {
+        for (long t = from; t <= to; t += 1000) {
+            controller.onBatch(2, cadenceHz, 3f, t);
+        }
+    }
+
+    @Test
+    public void slowWalking_stepsDownOneRateAtATimeAfterHold() {
+        FakeActions actions = new FakeActions();
+        SamplingRateController controller = new SamplingRateController(actions);
+        controller.setSampling(true, 0);
+        walk(controller, 1.8f, 0, SamplingRateController.DOWN_HOLD_MS - 1000);
+        assertEquals(SamplingRateController.Rate.FULL, controller.getRate());
+
+        walk(controller, 1.8f, SamplingRateController.DOWN_HOLD_MS, 60_000);
+        assertEquals(SamplingRateController.Rate.LOW, controller.getRate());
+        assertEquals(2, controller.getChanges());
+        assertEquals(15_000, controller.getTimeAtRate(SamplingRateController.Rate.FULL, 60_000));
+        assertEquals(15_000, controller.getTimeAtRate(SamplingRateController.Rate.MEDIUM, 60_000));
+        assertEquals(30_000, controller.getTimeAtRate(SamplingRateController.Rate.LOW, 60_000));
+    }
+
+    @Test
+    public void fasterCadence_stepsUpImmediately() {
+        FakeActions actions = new FakeActions();
+        SamplingRateController controller = new SamplingRateController(actions);
+        controller.setSampling(true, 0);
+        walk(controller, 1.8f, 0, 60_000);
+        assertEquals(SamplingRateController.Rate.LOW, controller.getRate());
+
+        controller.onBatch(3, 2.8f, 3f, 61_000);
+        assertEquals(SamplingRateController.Rate.MEDIUM, controller.getRate());
+        controller.onBatch(4, 4.5f, 3f, 62_000);
+        assertEquals(SamplingRateController.Rate.FULL, controller.getRate());
+        // 信号弱时无论步频都用最高档
+        walk(controller, 1.8f, 63_000, 120_000);
+        controller.onBatch(2, 1.8f, 1.1f, 121_000);
+        assertEquals(SamplingRateController.Rate.FULL, controller.getRate());
+    }
+
+    @Test
+    public void cadenceNearBoundary_doesNotThrash() {
+        FakeActions actions = new FakeActions();
+        SamplingRateController controller = new SamplingRateController(actions);
+        controller.setSampling(true, 0);
+        controller.onBatch(2, 2.6f, 3f, 0);
+        walk(controller, 2.6f, 0, 30_000);
+        assertEquals(SamplingRateController.Rate.MEDIUM, controller.getRate());
+        int changes = actions.rates.size();
+
+        // 步频在 LOW 档上限 (2.5Hz) 两侧波动：不低于降档余量，保持 MEDIUM
+        for (long t = 31_000; t <= 120_000; t += 1000) {
+            controller.onBatch(2, (t / 1000) % 2 == 0 ? 2.4f : 2.6f, 3f, t);
+        }
+        assertEquals(SamplingRateController.Rate.MEDIUM, controller.getRate());
+        assertEquals(changes, actions.rates.size());
+    }
+
+    @Test
+    public void timeAtRate_excludesPeriodsWithoutSampling() {
+        SamplingRateController controller = new SamplingRateController(new FakeActions());
+        controller.setSampling(true, 0);
+        controller.setSampling(false, 10_000);
+        controller.setSampling(true, 50_000);
+        assertEquals(20_000, controller.getTimeAtRate(SamplingRateController.Rate.FULL, 60_000));
+    }
+}
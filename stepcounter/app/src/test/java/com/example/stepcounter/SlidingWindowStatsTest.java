@@ -0,0 +1,75 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowStatsTest {
+
+    // 原先 StepDetectionAlgorithm 中的两遍计算：float 累加，除以 n
+    private static float[] twoPass(ArrayDeque<Float> window) {
+        float mean = 0;
+        for (float v : window) mean += v;
+        mean /= window.size();
+        float variance = 0;
+        for (float v : window) variance += (float) Math.pow(v - mean, 2);
+        variance /= window.size();
+        return new float[]{mean, variance};
+    }
+
+    // 以 double 两遍计算作为参考值，大窗口下 float 累加本身就有可见误差
+    private static double[] exact(ArrayDeque<Float> window) {
+        double mean = 0;
+        for (float v : window) mean += v;
+        mean /= window.size();
+        double m2 = 0;
+        for (float v : window) m2 += (v - mean) * (v - mean);
+        return new double[]{mean, m2 / window.size()};
+    }
+
+    @Test
+    public void welfordWindow_matchesTwoPassAcrossResyncs() {
+        Random random = new Random(42);
+        for (int capacity : new int[]{1, 7, 50, 4096, 5000}) {
+            SlidingWindowStats stats = new SlidingWindowStats(capacity);
+            ArrayDeque<Float> window = new ArrayDeque<>();
+            // 约 3 次重算周期以上；在走路、静止和尖峰噪声之间切换，静止段方差很小
+            int samples = Math.max(3 * 4096 + 100, 3 * capacity);
+            for (int i = 0; i < samples; i++) {
+                int segment = (i / 1000) % 3;
+                float value;
+                if (segment == 0) {
+                    value = 9.8f + 3f * (float) Math.sin(i * 0.3) + (float) random.nextGaussian();
+                } else if (segment == 1) {
+                    value = 9.81f + 0.01f * (float) random.nextGaussian();
+                } else {
+                    value = 9.8f + (random.nextInt(50) == 0 ? 30f : 0f) * random.nextFloat();
+                }
+                stats.add(value);
+                window.addLast(value);
+                if (window.size() > capacity) {
+                    window.removeFirst();
+                }
+                assertEquals(window.size(), stats.size());
+                // 大窗口时逐点两遍计算太慢，只在重算边界附近和每隔若干点比较
+                int phase = (i + 1) % 4096;
+                if (capacity > 64 && phase > 2 && phase < 4094 && i % 97 != 0) {
+                    continue;
+                }
+                String where = "capacity " + capacity + " sample " + i;
+                double[] reference = exact(window);
+                assertEquals(where, reference[0], stats.mean(), 1e-5);
+                assertEquals(where, reference[1], stats.variance(), 1e-5 + 1e-5 * reference[1]);
+                // 检测器实际使用的窗口（几十个样本）与原先的实现一致
+                if (capacity <= 64) {
+                    float[] old = twoPass(window);
+                    assertEquals(where, old[0], stats.mean(), 1e-4f);
+                    assertEquals(where, old[1], stats.variance(), 1e-4f + 1e-3f * old[1]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StepCounterBaselineTest {
+    private static final int BOOT = 7;
+
+    @Test
+    public void firstReading_startsFromCurrentValue() {
+        StepCounterBaseline baseline = new StepCounterBaseline();
+        assertEquals(0, baseline.onCounter(5000, BOOT, "2024-05-01", 0));
+        assertTrue(baseline.consumeChanged());
+        assertEquals(30, baseline.onCounter(5030, BOOT, "2024-05-01", 0));
+        assertEquals(20, baseline.onCounter(5050, BOOT, "2024-05-01", 30));
+        assertFalse(baseline.consumeChanged());
+    }
+
+    @Test
+    public void restart_doesNotDoubleCountRecoveredSteps() {
+        // 进程被杀前已计入 120 步（日志重放后存储层给出的今日总数）
+        StepCounterBaseline baseline = new StepCounterBaseline();
+        baseline.restore("2024-05-01", 1000, BOOT, 120);
+        assertEquals(10, baseline.onCounter(1130, BOOT, "2024-05-01", 120));
+        assertFalse(baseline.consumeChanged());
+    }
+
+    @Test
+    public void newDay_startsFromLastAccountedValue() {
+        StepCounterBaseline baseline = new StepCounterBaseline();
+        baseline.restore("2024-05-01", 1000, BOOT, 800);
+        assertEquals(15, baseline.onCounter(1815, BOOT, "2024-05-02", 0));
+        assertTrue(baseline.consumeChanged());
+        assertEquals("2024-05-02", baseline.getDate());
+        assertEquals(1800, baseline.getBaseline());
+    }
+
+    @Test
+    public void counterGoingBackwards_isTreatedAsReboot() {
+        StepCounterBaseline baseline = new StepCounterBaseline();
+        baseline.restore("2024-05-01", 1000, StepCounterBaseline.UNKNOWN_BOOT, 500);
+        assertEquals(40, baseline.onCounter(40, StepCounterBaseline.UNKNOWN_BOOT, "2024-05-01", 500));
+        assertEquals(1, baseline.getRebootCount());
+        assertEquals(10, baseline.onCounter(50, StepCounterBaseline.UNKNOWN_BOOT, "2024-05-01", 540));
+    }
+
+    @Test
+    public void bootCountChange_isTreatedAsReboot() {
+        // 重启后计数器已超过重启前的读数，只能靠开机次数发现
+        StepCounterBaseline baseline = new StepCounterBaseline();
+        baseline.restore("2024-05-01", 1000, BOOT, 50);
+        assertEquals(2000, baseline.onCounter(2000, BOOT + 1, "2024-05-01", 50));
+        assertEquals(1, baseline.getRebootCount());
+        assertEquals(BOOT + 1, baseline.getBootCount());
+    }
+
+    @Test
+    public void resetDay_countsOnlyLaterSteps() {
+        StepCounterBaseline baseline = new StepCounterBaseline();
+        baseline.restore("2024-05-01", 1000, BOOT, 300);
+        assertEquals(0, baseline.onCounter(1300, BOOT, "2024-05-01", 300));
+        baseline.resetDay("2024-05-01");
+        assertEquals(5, baseline.onCounter(1305, BOOT, "2024-05-01", 0));
+    }
+}
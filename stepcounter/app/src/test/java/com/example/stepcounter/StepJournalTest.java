@@ -0,0 +1,139 @@
+package com.example.stepcounter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StepJournalTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static List<long[]> replay(StepJournal journal, long afterSeq) {
+        List<long[]> records = new ArrayList<>();
+        journal.replay(afterSeq, (seq, wallTimeMs, steps) ->
+                records.add(new long[]{seq, wallTimeMs, steps}));
+        return records;
+    }
+
+    @Test
+    public void reopen_replaysUncommittedRecords() throws IOException {
+        File file = new File(tmp.getRoot(), "journal.bin");
+        StepJournal journal = new StepJournal(file, 4096);
+        assertEquals(1, journal.append(1000, 1));
+        assertEquals(2, journal.append(2000, 1));
+        assertEquals(3, journal.append(3000, 2));
+        // 不调用 close，模拟进程被杀
+
+        StepJournal reopened = new StepJournal(file, 4096);
+        List<long[]> records = replay(reopened, 1);
+        assertEquals(2, records.size());
+        assertArrayEquals(new long[]{2, 2000, 1}, records.get(0));
+        assertArrayEquals(new long[]{3, 3000, 2}, records.get(1));
+        assertEquals(4, reopened.append(4000, 1));
+    }
+
+    @Test
+    public void compact_keepsOnlyNewerRecordsAndSequenceKeepsGrowing() throws IOException {
+        File file = new File(tmp.getRoot(), "journal.bin");
+        StepJournal journal = new StepJournal(file, 4096);
+        for (int i = 1; i <= 10; i++) journal.append(i * 1000L, 1);
+        journal.compact(8);
+        assertEquals(2, replay(journal, 0).size());
+        journal.compact(10);
+        assertTrue(journal.isEmpty());
+
+        StepJournal reopened = new StepJournal(file, 4096);
+        assertTrue(replay(reopened, 0).isEmpty());
+        assertEquals(11, reopened.append(11000, 1));
+    }
+
+    @Test
+    public void tornRecord_isIgnored() throws IOException {
+        File file = new File(tmp.getRoot(), "journal.bin");
+        StepJournal journal = new StepJournal(file, 4096);
+        journal.append(1000, 1);
+        journal.append(2000, 1);
+        // 破坏第二条记录的步数字段，校验不再匹配
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(16 + 24 + 16);
+            raf.writeInt(99);
+        }
+        StepJournal reopened = new StepJournal(file, 4096);
+        assertEquals(1, replay(reopened, 0).size());
+        assertEquals(2, reopened.append(3000, 1));
+    }
+
+    // 把 from 号记录槽（从 0 开始）的前 bytes 个字节复制到 to 号槽，模拟 compact() 写到一半被杀
+    private static void copySlot(File file, int from, int to, int bytes) throws IOException {
+        byte[] record = new byte[24];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(16 + 24L * from);
+            raf.readFully(record);
+            // 与 compact() 相同的顺序：先写内容，序号最后写
+            raf.seek(16 + 24L * to + 8);
+            raf.write(record, 8, Math.min(bytes, 24) - 8);
+            if (bytes >= 24) {
+                raf.seek(16 + 24L * to);
+                raf.write(record, 0, 8);
+            }
+        }
+    }
+
+    @Test
+    public void interruptedCompaction_replaysLiveRecordsOnce() throws IOException {
+        File file = new File(tmp.getRoot(), "journal.bin");
+        StepJournal journal = new StepJournal(file, 4096);
+        for (int i = 1; i <= 10; i++) journal.append(i * 1000L, i);
+
+        // 9、10 号已复制到开头，旧的尾部还没清除
+        copySlot(file, 8, 0, 24);
+        copySlot(file, 9, 1, 24);
+        StepJournal reopened = new StepJournal(file, 4096);
+        List<long[]> records = replay(reopened, 8);
+        assertEquals(2, records.size());
+        assertArrayEquals(new long[]{9, 9000, 9}, records.get(0));
+        assertArrayEquals(new long[]{10, 10000, 10}, records.get(1));
+        assertEquals(11, reopened.append(11000, 11));
+
+        StepJournal again = new StepJournal(file, 4096);
+        assertEquals(3, replay(again, 8).size());
+        again.compact(8);
+        assertEquals(3, replay(new StepJournal(file, 4096), 0).size());
+    }
+
+    @Test
+    public void compactionKilledMidRecord_keepsRecordAtOldPosition() throws IOException {
+        File file = new File(tmp.getRoot(), "journal.bin");
+        StepJournal journal = new StepJournal(file, 4096);
+        for (int i = 1; i <= 10; i++) journal.append(i * 1000L, i);
+
+        // 9 号已复制，10 号只写了内容、序号还是旧的 2
+        copySlot(file, 8, 0, 24);
+        copySlot(file, 9, 1, 20);
+        StepJournal reopened = new StepJournal(file, 4096);
+        List<long[]> records = replay(reopened, 8);
+        assertEquals(2, records.size());
+        assertEquals(9, records.get(0)[0]);
+        assertEquals(10, records.get(1)[0]);
+        assertEquals(11, reopened.append(11000, 11));
+    }
+
+    @Test
+    public void fullJournal_rejectsAppendUntilCompacted() throws IOException {
+        StepJournal journal = new StepJournal(new File(tmp.getRoot(), "journal.bin"), 16 + 24 * 3);
+        assertTrue(journal.append(1, 1) > 0);
+        assertTrue(journal.append(2, 1) > 0);
+        assertTrue(journal.append(3, 1) > 0);
+        assertEquals(-1, journal.append(4, 1));
+        journal.compact(journal.getLastSeq());
+        assertEquals(4, journal.append(4, 1));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.stepcounter;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class StepRollupsTest {
+
+    // 内存存储，统计范围查询读到的桶数
+    private static class MemoryStore implements StepRollups.Store {
+        final Map<StepRollups.Period, TreeMap<String, StepRollups.Bucket>> tables =
+                new EnumMap<>(StepRollups.Period.class);
+        int bucketsRead = 0;
+
+        MemoryStore() {
+            for (StepRollups.Period period : StepRollups.Period.values()) {
+                tables.put(period, new TreeMap<>());
+            }
+        }
+
+        @Override public StepRollups.Bucket get(StepRollups.Period period, String key) {
+            bucketsRead++;
+            StepRollups.Bucket bucket = tables.get(period).get(key);
+            return bucket == null ? null : copy(bucket);
+        }
+
+        @Override public void put(StepRollups.Period period, String key, StepRollups.Bucket bucket) {
+            tables.get(period).put(key, copy(bucket));
+        }
+
+        @Override public void delete(StepRollups.Period period, String key) {
+            tables.get(period).remove(key);
+        }
+
+        @Override public void range(StepRollups.Period period, String fromKey, String toKey,
+                                    StepRollups.Visitor visitor) {
+            if (fromKey.compareTo(toKey) > 0) return;
+            for (Map.Entry<String, StepRollups.Bucket> e
+                    : tables.get(period).subMap(fromKey, true, toKey, true).entrySet()) {
+                bucketsRead++;
+                visitor.onBucket(e.getKey(), e.getValue());
+            }
+        }
+
+        private static StepRollups.Bucket copy(StepRollups.Bucket b) {
+            StepRollups.Bucket c = new StepRollups.Bucket();
+            c.steps = b.steps;
+            c.max = b.max;
+            c.activeMinutes = b.activeMinutes;
+            c.goalDays = b.goalDays;
+            return c;
+        }
+    }
+
+    private static void record(StepRollups rollups, Map<String, int[]> days, String date,
+                               int minute, int steps, int goal) {
+        int[] minutes = days.computeIfAbsent(date, d -> new int[StepTimeSeries.MINUTES_PER_DAY]);
+        int[] deltas = new int[StepTimeSeries.MINUTES_PER_DAY];
+        deltas[minute] = steps;
+        rollups.apply(date, minutes, deltas, goal);
+    }
+
+    @Test
+    public void apply_maintainsAllPeriodsIncrementally() {
+        MemoryStore store = new MemoryStore();
+        StepRollups rollups = new StepRollups(store);
+        Map<String, int[]> days = new TreeMap<>();
+        // 2024-01-01 是周一
+        record(rollups, days, "2024-01-01", 8 * 60, 100, 500);
+        record(rollups, days, "2024-01-01", 8 * 60, 50, 500);
+        record(rollups, days, "2024-01-01", 8 * 60 + 1, 30, 500);
+        record(rollups, days, "2024-01-01", 18 * 60, 400, 500);
+        record(rollups, days, "2024-01-03", 60, 200, 500);
+
+        StepRollups.Bucket hour = store.tables.get(StepRollups.Period.HOUR).get("2024-01-01 08");
+        assertEquals(180, hour.steps);
+        assertEquals(150, hour.max);
+        assertEquals(2, hour.activeMinutes);
+
+        StepRollups.Bucket day = store.tables.get(StepRollups.Period.DAY).get("2024-01-01");
+        assertEquals(580, day.steps);
+        assertEquals(400, day.max);
+        assertEquals(3, day.activeMinutes);
+        assertEquals(1, day.goalDays);
+
+        StepRollups.Bucket week = store.tables.get(StepRollups.Period.WEEK).get("2024-01-01");
+        assertEquals(780, week.steps);
+        assertEquals(580, week.max);
+        assertEquals(4, week.activeMinutes);
+        assertEquals(1, week.goalDays);
+        assertEquals("2024-01-01", StepRollups.weekKey("2024-01-07"));
+        assertEquals("2024-01-08", StepRollups.weekKey("2024-01-08"));
+
+        // 提高目标只重新判断当天
+        rollups.refreshGoal("2024-01-03", 100);
+        rollups.refreshGoal("2024-01-01", 1000);
+        assertEquals(1, store.tables.get(StepRollups.Period.MONTH).get("2024-01").goalDays);
+
+        rollups.removeDay("2024-01-03");
+        StepRollups.Bucket month = store.tables.get(StepRollups.Period.MONTH).get("2024-01");
+        assertEquals(580, month.steps);
+        assertEquals(0, month.goalDays);
+        assertTrue(store.tables.get(StepRollups.Period.HOUR).headMap("2024-01-03 99").tailMap("2024-01-03").isEmpty());
+    }
+
+    @Test
+    public void lastDays_matchesRescanAndReadsFewBuckets() {
+        MemoryStore store = new MemoryStore();
+        StepRollups rollups = new StepRollups(store);
+        TreeMap<String, int[]> days = new TreeMap<>();
+        Random random = new Random(7);
+        int goal = 8000;
+        // 两年多的历史，包括闰年
+        String date = "2022-11-15";
+        for (int i = 0; i < 800; i++) {
+            if (random.nextInt(10) > 0) {
+                for (int k = 0; k < 20; k++) {
+                    record(rollups, days, date, random.nextInt(1440), random.nextInt(900), goal);
+                }
+            }
+            date = StepRollups.addDays(date, 1);
+        }
+
+        for (String today : new String[]{"2024-02-29", "2024-03-01", "2024-12-31", "2025-01-22"}) {
+            for (int n : new int[]{1, 7, 30, 365}) {
+                long expectedSteps = 0;
+                int expectedGoalDays = 0;
+                int expectedBest = 0;
+                String from = StepRollups.addDays(today, -(n - 1));
+                for (Map.Entry<String, int[]> e : days.subMap(from, true, today, true).entrySet()) {
+                    int total = 0;
+                    for (int steps : e.getValue()) total += steps;
+                    expectedSteps += total;
+                    if (total >= goal) expectedGoalDays++;
+                    expectedBest = Math.max(expectedBest, total);
+                }
+                store.bucketsRead = 0;
+                StepRollups.Summary summary = rollups.lastDays(today, n);
+                assertEquals(today + "/" + n, expectedSteps, summary.steps);
+                assertEquals(today + "/" + n, expectedGoalDays, summary.goalDays);
+                assertEquals(today + "/" + n, expectedBest, summary.bestDay);
+                assertTrue(today + "/" + n + " read " + store.bucketsRead, store.bucketsRead <= 31 + 12 + 31);
+            }
+        }
+    }
+
+    @Test
+    public void currentStreak_spansMonthsAndToleratesUnfinishedToday() {
+        MemoryStore store = new MemoryStore();
+        StepRollups rollups = new StepRollups(store);
+        Map<String, int[]> days = new TreeMap<>();
+        int goal = 1000;
+        record(rollups, days, "2023-10-30", 600, 1500, goal);
+        // 2023-10-31 未达标，之后连续达标到 2024-03-10
+        record(rollups, days, "2023-10-31", 600, 999, goal);
+        String date = "2023-11-01";
+        while (date.compareTo("2024-03-10") <= 0) {
+            record(rollups, days, date, 600, 1200, goal);
+            date = StepRollups.addDays(date, 1);
+        }
+        int expected = 30 + 31 + 31 + 29 + 10;
+        assertEquals(expected, rollups.currentStreak("2024-03-10"));
+        // 今天还没达标，从昨天数起；昨天也没有则为 0
+        record(rollups, days, "2024-03-11", 600, 10, goal);
+        assertEquals(expected, rollups.currentStreak("2024-03-11"));
+        assertEquals(0, rollups.currentStreak("2024-03-12"));
+
+        store.bucketsRead = 0;
+        rollups.currentStreak("2024-03-10");
+        assertTrue("read " + store.bucketsRead, store.bucketsRead <= 1 + 10 + 5 + 31);
+    }
+}
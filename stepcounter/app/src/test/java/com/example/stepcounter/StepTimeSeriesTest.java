@@ -0,0 +1,131 @@
+package com.example.stepcounter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StepTimeSeriesTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void appendThenRead_roundTripsMinuteCounts() throws IOException {
+        StepTimeSeries series = new StepTimeSeries(tmp.getRoot());
+        int[] first = new int[StepTimeSeries.MINUTES_PER_DAY];
+        first[480] = 95;
+        first[481] = 102;
+        first[600] = 7;
+        series.append("2025-10-20", first);
+        // 同一分钟的后续增量以及更早的分钟都可以继续追加
+        int[] second = new int[StepTimeSeries.MINUTES_PER_DAY];
+        second[600] = 3;
+        second[100] = 12;
+        series.append("2025-10-20", second);
+
+        int[] out = new int[StepTimeSeries.MINUTES_PER_DAY];
+        int total = new StepTimeSeries(tmp.getRoot()).readDay("2025-10-20", out);
+        assertEquals(95 + 102 + 7 + 3 + 12, total);
+        assertEquals(95, out[480]);
+        assertEquals(102, out[481]);
+        assertEquals(10, out[600]);
+        assertEquals(12, out[100]);
+        assertEquals(0, out[0]);
+    }
+
+    @Test
+    public void truncatedTail_isDroppedAndAppendContinues() throws IOException {
+        StepTimeSeries series = new StepTimeSeries(tmp.getRoot());
+        int[] minutes = new int[StepTimeSeries.MINUTES_PER_DAY];
+        minutes[10] = 300; // 两字节 varint
+        series.append("2025-10-20", minutes);
+        File file = new File(tmp.getRoot(), "2025-10-20.sts");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1); // 模拟写到一半进程被杀
+        }
+
+        StepTimeSeries reopened = new StepTimeSeries(tmp.getRoot());
+        int[] more = new int[StepTimeSeries.MINUTES_PER_DAY];
+        more[11] = 40;
+        reopened.append("2025-10-20", more);
+
+        int[] out = new int[StepTimeSeries.MINUTES_PER_DAY];
+        assertEquals(40, reopened.readDay("2025-10-20", out));
+        assertEquals(0, out[10]);
+        assertEquals(40, out[11]);
+    }
+
+    @Test
+    public void tornHeader_isRewrittenAndAppendContinues() throws IOException {
+        File file = new File(tmp.getRoot(), "2025-10-20.sts");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(new byte[]{'S', 'T'}); // 魔数写到一半进程被杀
+        }
+        StepTimeSeries series = new StepTimeSeries(tmp.getRoot());
+        int[] minutes = new int[StepTimeSeries.MINUTES_PER_DAY];
+        minutes[30] = 25;
+        series.append("2025-10-20", minutes);
+
+        int[] out = new int[StepTimeSeries.MINUTES_PER_DAY];
+        assertEquals(25, new StepTimeSeries(tmp.getRoot()).readDay("2025-10-20", out));
+        assertEquals(25, out[30]);
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongMagic_isRejected() throws IOException {
+        File file = new File(tmp.getRoot(), "2025-10-20.sts");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(new byte[]{'X', 'Y', 'Z', '1', 0, 0});
+        }
+        new StepTimeSeries(tmp.getRoot()).append("2025-10-20", new int[StepTimeSeries.MINUTES_PER_DAY]);
+    }
+
+    @Test
+    public void scan_visitsDaysInRangeInOrder() throws IOException {
+        StepTimeSeries series = new StepTimeSeries(tmp.getRoot());
+        String[] dates = {"2025-10-22", "2025-10-20", "2025-10-21", "2025-09-30"};
+        for (int i = 0; i < dates.length; i++) {
+            int[] minutes = new int[StepTimeSeries.MINUTES_PER_DAY];
+            minutes[i] = i + 1;
+            series.append(dates[i], minutes);
+        }
+        List<String> visited = new ArrayList<>();
+        series.scan("2025-10-01", "2025-10-21", (date, minutes) -> visited.add(date));
+        assertEquals(2, visited.size());
+        assertEquals("2025-10-20", visited.get(0));
+        assertEquals("2025-10-21", visited.get(1));
+    }
+
+    @Test
+    public void yearOfMinuteData_fitsWellUnderOneMegabyte() throws IOException {
+        StepTimeSeries series = new StepTimeSeries(tmp.getRoot());
+        Random random = new Random(7);
+        for (int day = 0; day < 365; day++) {
+            int[] minutes = new int[StepTimeSeries.MINUTES_PER_DAY];
+            // 每天约 16 小时清醒，其中约三分之一的分钟有步数；每 30 秒写一次
+            for (int minute = 7 * 60; minute < 23 * 60; minute++) {
+                if (random.nextInt(3) == 0) {
+                    minutes[minute] = 20 + random.nextInt(100);
+                }
+            }
+            String date = String.format("2025-%02d-%02d", 1 + day / 31, 1 + day % 31);
+            for (int half = 0; half < 2; half++) {
+                int[] chunk = new int[StepTimeSeries.MINUTES_PER_DAY];
+                for (int minute = 0; minute < minutes.length; minute++) {
+                    chunk[minute] = half == 0 ? minutes[minute] / 2 : minutes[minute] - minutes[minute] / 2;
+                }
+                series.append(date, chunk);
+            }
+        }
+        long size = series.sizeOnDisk();
+        assertTrue("一年分钟数据: " + size + " 字节", size < 512 * 1024);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.stepcounter;
+
+import java.util.Random;
+
+// 回放测试用的合成轨迹：竖直方向正弦波，每个波峰标注为一步
+public final class SyntheticTraces {
+    public static final int SAMPLE_RATE_HZ = 50;
+    private static final float GRAVITY = 9.81f;
+
+    private SyntheticTraces() {
+    }
+
+    public static AccelTrace walking(int seconds, long seed) {
+        return generate("walking", seconds, 1.8, 3.0, 0.3, seed);
+    }
+
+    public static AccelTrace running(int seconds, long seed) {
+        return generate("running", seconds, 2.8, 7.0, 0.6, seed);
+    }
+
+    // 手持时步伐幅度小、抖动大
+    public static AccelTrace noisyWalking(int seconds, long seed) {
+        return generate("noisy_walking", seconds, 1.8, 2.0, 1.0, seed);
+    }
+
+    public static AccelTrace still(int seconds, long seed) {
+        return generate("still", seconds, 0, 0, 0.02, seed);
+    }
+
+    // 以指定采样率行走，jitter 为采样间隔的随机抖动比例（0 表示等间隔）
+    public static AccelTrace walkingAt(int rateHz, double jitter, int seconds, long seed) {
+        return generate("walking_" + rateHz + "hz", seconds, rateHz, jitter, 1.8, 3.0, 0.3, seed);
+    }
+
+    public static AccelTrace generate(String name, int seconds, double cadenceHz,
+                                      double amplitude, double noise, long seed) {
+        return generate(name, seconds, SAMPLE_RATE_HZ, 0, cadenceHz, amplitude, noise, seed);
+    }
+
+    public static AccelTrace generate(String name, int seconds, int rateHz, double jitter,
+                                      double cadenceHz, double amplitude, double noise, long seed) {
+        Random random = new Random(seed);
+        AccelTrace.Builder builder = new AccelTrace.Builder(name);
+        long periodNs = 1_000_000_000L / rateHz;
+        double phase = 0;
+        long timestamp = 1_000_000_000L;
+        int samples = seconds * rateHz;
+        for (int i = 0; i < samples; i++) {
+            long intervalNs = jitter > 0
+                    ? (long) (periodNs * (1 + jitter * (2 * random.nextDouble() - 1)))
+                    : periodNs;
+            timestamp += intervalNs;
+            double previous = phase;
+            phase += 2 * Math.PI * cadenceHz * intervalNs / 1e9;
+            // 相位跨过 π/2 即为一个波峰
+            boolean crest = cadenceHz > 0 && crossesCrest(previous, phase);
+            double wave = amplitude * Math.sin(phase);
+            builder.add(timestamp,
+                    (float) (0.1 * wave + random.nextGaussian() * noise),
+                    (float) (GRAVITY + wave + random.nextGaussian() * noise),
+                    (float) (0.2 * wave + random.nextGaussian() * noise),
+                    crest);
+        }
+        return builder.build(-1);
+    }
+
+    private static boolean crossesCrest(double from, double to) {
+        double crest = Math.PI / 2;
+        double period = 2 * Math.PI;
+        return Math.floor((from - crest) / period) != Math.floor((to - crest) / period);
+    }
+}
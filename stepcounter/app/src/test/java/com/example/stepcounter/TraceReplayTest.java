@@ -0,0 +1,148 @@
+package com.example.stepcounter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轨迹回放测试。合成轨迹上断言各检测引擎的计步误差、与采样率和批量投递方式无关，
+ * 以及 csv / bin 格式回放一致；src/test/resources/traces 下有录制会话 (.csv / .bin) 时，
+ * 断言全部会话合计的检测步数与标注步数相差不超过 10%。
+ */
+public class TraceReplayTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final TraceReplayer replayer = new TraceReplayer(StepDetectionAlgorithm::new);
+
+    @Test
+    public void walkingTrace_detectsLabelledSteps() {
+        TraceReplayer.Result result = replayer.replay(SyntheticTraces.walking(60, 1));
+        assertTrue(result.labelledSteps > 100);
+        assertTrue(result.toString(), result.relativeError() < 0.1);
+    }
+
+    @Test
+    public void runningTrace_detectsLabelledSteps() {
+        TraceReplayer.Result result = replayer.replay(SyntheticTraces.running(60, 2));
+        assertTrue(result.toString(), result.relativeError() < 0.1);
+    }
+
+    @Test
+    public void stillTrace_detectsNoSteps() {
+        TraceReplayer.Result result = replayer.replay(SyntheticTraces.still(60, 3));
+        assertEquals(result.toString(), 0, result.detectedSteps);
+    }
+
+    @Test
+    public void batchedReplay_matchesPerSampleReplay() {
+        AccelTrace trace = SyntheticTraces.walking(60, 5);
+        TraceReplayer.Result perSample = replayer.replay(trace);
+        for (int batchSize : new int[]{1, 7, 50, 500}) {
+            TraceReplayer.Result batched = replayer.replayBatched(trace, batchSize);
+            assertEquals(perSample.detectedSteps, batched.detectedSteps);
+        }
+    }
+
+    @Test
+    public void allEngines_independentOfSampleRateAndDelivery() {
+        for (String engine : StepDetectorFactory.engines()) {
+            TraceReplayer engineReplayer = new TraceReplayer(() -> StepDetectorFactory.create(engine));
+            for (int rateHz : new int[]{15, 50, 200}) {
+                AccelTrace trace = SyntheticTraces.walkingAt(rateHz, 0.2, 60, rateHz);
+                TraceReplayer.Result perSample = engineReplayer.replay(trace);
+                // FIFO 批量投递：每批 2 秒的样本
+                TraceReplayer.Result burst = engineReplayer.replayBatched(trace, 2 * rateHz);
+                assertTrue(engine + " " + perSample, perSample.relativeError() < 0.1);
+                assertEquals(engine + " " + burst, perSample.detectedSteps, burst.detectedSteps);
+            }
+        }
+    }
+
+    @Test
+    public void allEngines_reportCadenceAndSignalQuality() {
+        AccelTrace trace = SyntheticTraces.walkingAt(20, 0.1, 30, 21);
+        long[] steps = new long[trace.size];
+        for (String engine : StepDetectorFactory.engines()) {
+            StepDetector detector = StepDetectorFactory.create(engine);
+            detector.detectSteps(trace.xyz, trace.timestampsNs, trace.size, steps);
+            assertEquals(engine, 1.8f, detector.getCadenceHz(), 0.1f);
+            assertTrue(engine + " quality " + detector.getSignalQuality(),
+                    detector.getSignalQuality() > SamplingRateController.WEAK_SIGNAL_QUALITY);
+        }
+    }
+
+    @Test
+    public void allEngines_meetAccuracyOnSyntheticTraces() {
+        for (String engine : StepDetectorFactory.engines()) {
+            TraceReplayer engineReplayer = new TraceReplayer(() -> StepDetectorFactory.create(engine));
+            TraceReplayer.Result walking = engineReplayer.replay(SyntheticTraces.walking(60, 11));
+            TraceReplayer.Result running = engineReplayer.replay(SyntheticTraces.running(60, 12));
+            TraceReplayer.Result still = engineReplayer.replay(SyntheticTraces.still(60, 13));
+            assertTrue(engine + " " + walking, walking.relativeError() < 0.1);
+            assertTrue(engine + " " + running, running.relativeError() < 0.1);
+            assertEquals(engine + " " + still, 0, still.detectedSteps);
+        }
+    }
+
+    @Test
+    public void bandPass_improvesAccuracyOnNoisyWalking() {
+        AccelTrace trace = SyntheticTraces.noisyWalking(60, 14);
+        StepDetectorConfig legacy = StepDetectorConfig.DEFAULT.toBuilder().lowPass(0.8f).build();
+        TraceReplayer.Result lowPass = new TraceReplayer(() -> new StepDetectionAlgorithm(legacy))
+                .replay(trace);
+        TraceReplayer.Result bandPass = replayer.replay(trace);
+        assertTrue(bandPass.toString(), bandPass.relativeError() < 0.1);
+        assertTrue("low-pass " + lowPass + " band-pass " + bandPass,
+                bandPass.relativeError() < lowPass.relativeError());
+    }
+
+    @Test
+    public void csvAndBinaryTraces_replayIdentically() throws IOException {
+        AccelTrace trace = SyntheticTraces.walking(20, 4);
+        File csv = tmp.newFile("walking.csv");
+        try (Writer writer = new FileWriter(csv)) {
+            writer.write("timestamp,x,y,z,step\n");
+            for (int i = 0; i < trace.size; i++) {
+                writer.write(trace.timestampsNs[i] + "," + trace.xyz[i * 3] + ","
+                        + trace.xyz[i * 3 + 1] + "," + trace.xyz[i * 3 + 2] + ","
+                        + (trace.stepLabels[i] ? 1 : 0) + "\n");
+            }
+        }
+        File bin = tmp.newFile("walking.bin");
+        trace.writeBinary(bin);
+
+        List<TraceReplayer.Result> results = replayer.replayDirectory(tmp.getRoot());
+        assertEquals(2, results.size());
+        TraceReplayer.Result direct = replayer.replay(trace);
+        for (TraceReplayer.Result result : results) {
+            assertEquals(direct.detectedSteps, result.detectedSteps);
+            assertEquals(direct.labelledSteps, result.labelledSteps);
+        }
+    }
+
+    @Test
+    public void recordedTraces_replay() throws IOException {
+        URL url = getClass().getClassLoader().getResource("traces");
+        if (url == null) {
+            return; // 没有录制的会话
+        }
+        int detected = 0;
+        int labelled = 0;
+        for (TraceReplayer.Result result : replayer.replayDirectory(new File(url.getPath()))) {
+            detected += result.detectedSteps;
+            labelled += result.labelledSteps;
+        }
+        assertTrue("detected=" + detected + " labelled=" + labelled,
+                Math.abs(detected - labelled) <= 0.1 * labelled);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.stepcounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 离线回放引擎：把录制的轨迹以尽可能快的速度送入检测算法，
+ * 统计检测步数与标注步数的误差，以及每个样本的处理延迟分位数。
+ */
+public class TraceReplayer {
+    private final Supplier<StepDetector> detectorFactory;
+
+    public TraceReplayer(Supplier<StepDetector> detectorFactory) {
+        this.detectorFactory = detectorFactory;
+    }
+
+    public Result replay(AccelTrace trace) {
+        StepDetector detector = detectorFactory.get();
+        float[] sample = new float[3];
+        long[] latencies = new long[trace.size];
+        int detected = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < trace.size; i++) {
+            sample[0] = trace.xyz[i * 3];
+            sample[1] = trace.xyz[i * 3 + 1];
+            sample[2] = trace.xyz[i * 3 + 2];
+            long t0 = System.nanoTime();
+            boolean step = detector.detectStep(sample, trace.timestampsNs[i]);
+            latencies[i] = System.nanoTime() - t0;
+            if (step) detected++;
+        }
+        long wallNs = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(trace.name, trace.size, detected, trace.labelledSteps(),
+                trace.durationNs(), wallNs, latencies);
+    }
+
+    // 按批回放（模拟传感器批量投递），每批调用一次 detectSteps；
+    // 延迟按批测量后均摊到批内每个样本
+    public Result replayBatched(AccelTrace trace, int batchSize) {
+        StepDetector detector = detectorFactory.get();
+        float[] xyz = new float[batchSize * 3];
+        long[] timestamps = new long[batchSize];
+        long[] stepTimestamps = new long[batchSize];
+        long[] latencies = new long[(trace.size + batchSize - 1) / batchSize];
+        int detected = 0;
+
+        long start = System.nanoTime();
+        for (int offset = 0, batch = 0; offset < trace.size; offset += batchSize, batch++) {
+            int n = Math.min(batchSize, trace.size - offset);
+            System.arraycopy(trace.xyz, offset * 3, xyz, 0, n * 3);
+            System.arraycopy(trace.timestampsNs, offset, timestamps, 0, n);
+            long t0 = System.nanoTime();
+            detected += detector.detectSteps(xyz, timestamps, n, stepTimestamps);
+            latencies[batch] = (System.nanoTime() - t0) / n;
+        }
+        long wallNs = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(trace.name, trace.size, detected, trace.labelledSteps(),
+                trace.durationNs(), wallNs, latencies);
+    }
+
+    // 回放目录下所有 .csv / .bin 轨迹
+    public List<Result> replayDirectory(File dir) throws IOException {
+        List<Result> results = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".csv") || name.endsWith(".bin"));
+        if (files == null) {
+            return results;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            results.add(replay(AccelTrace.load(file)));
+        }
+        return results;
+    }
+
+    public static class Result {
+        public final String name;
+        public final int samples;
+        public final int detectedSteps;
+        // 标注步数，未标注时为 0
+        public final int labelledSteps;
+        public final long traceDurationNs;
+        public final long wallTimeNs;
+        private final long[] sortedLatenciesNs;
+
+        Result(String name, int samples, int detectedSteps, int labelledSteps,
+               long traceDurationNs, long wallTimeNs, long[] sortedLatenciesNs) {
+            this.name = name;
+            this.samples = samples;
+            this.detectedSteps = detectedSteps;
+            this.labelledSteps = labelledSteps;
+            this.traceDurationNs = traceDurationNs;
+            this.wallTimeNs = wallTimeNs;
+            this.sortedLatenciesNs = sortedLatenciesNs;
+        }
+
+        public int stepError() {
+            return detectedSteps - labelledSteps;
+        }
+
+        // 相对误差，标注为 0 时退化为检测步数本身
+        public double relativeError() {
+            if (labelledSteps == 0) {
+                return detectedSteps;
+            }
+            return Math.abs(stepError()) / (double) labelledSteps;
+        }
+
+        public long latencyPercentileNs(double percentile) {
+            if (sortedLatenciesNs.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatenciesNs.length) - 1;
+            index = Math.max(0, Math.min(index, sortedLatenciesNs.length - 1));
+            return sortedLatenciesNs[index];
+        }
+
+        // 相对真实时间的回放倍速
+        public double speedup() {
+            return wallTimeNs == 0 ? 0 : traceDurationNs / (double) wallTimeNs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: samples=%d detected=%d labelled=%d error=%+d (%.1f%%) " +
+                            "latency p50=%dns p90=%dns p99=%dns max=%dns speedup=%.0fx",
+                    name, samples, detectedSteps, labelledSteps, stepError(),
+                    relativeError() * 100,
+                    latencyPercentileNs(50), latencyPercentileNs(90),
+                    latencyPercentileNs(99), latencyPercentileNs(100), speedup());
+        }
+    }
+}
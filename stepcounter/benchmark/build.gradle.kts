@@ -0,0 +1,43 @@
+// 纯 JVM 基准测试模块：直接编译 app 中与 Android 无关的检测算法源码。
+// 运行: ./gradlew :benchmark:jmh
+plugins {
+    id("java")
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include("com/example/stepcounter/StepDetectionAlgorithm.java")
+            include("com/example/stepcounter/SlidingWindowStats.java")
+            include("com/example/stepcounter/BiquadFilter.java")
+            include("com/example/stepcounter/SampleRateEstimator.java")
+            include("com/example/stepcounter/StepDetector.java")
+            include("com/example/stepcounter/StepDetectorConfig.java")
+            include("com/example/stepcounter/StepDetectorFactory.java")
+            include("com/example/stepcounter/AutocorrelationStepDetector.java")
+            include("com/example/stepcounter/ZeroCrossingStepDetector.java")
+        }
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    timeUnit.set("ns")
+    // 分配率 (gc.alloc.rate.norm) 来自 GC profiler
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,70 @@
+package com.example.stepcounter.benchmark;
+
+import com.example.stepcounter.BiquadFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 滤波级的逐样本开销：原先的三轴单极点低通 + 求模，对比求模 + biquad 高通 + 低通。
+ * 返回累加值防止死代码消除。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark {
+    private static final int SAMPLES = 10 * SyntheticTraces.SAMPLE_RATE_HZ;
+    private static final float ALPHA = 0.8f;
+
+    private float[] xyz;
+    private final float[] filtered = new float[3];
+    private BiquadFilter highPass;
+    private BiquadFilter lowPass;
+
+    @Setup
+    public void setUp() {
+        xyz = SyntheticTraces.generate(SyntheticTraces.Scenario.WALKING, SAMPLES, 42).xyz;
+        highPass = BiquadFilter.highPass(SyntheticTraces.SAMPLE_RATE_HZ, 0.5f, BiquadFilter.BUTTERWORTH_Q);
+        lowPass = BiquadFilter.lowPass(SyntheticTraces.SAMPLE_RATE_HZ, 3f, BiquadFilter.BUTTERWORTH_Q);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float singlePoleLowPass() {
+        float sum = 0;
+        float fx = filtered[0];
+        float fy = filtered[1];
+        float fz = filtered[2];
+        for (int j = 0; j < SAMPLES * 3; j += 3) {
+            fx = ALPHA * fx + (1 - ALPHA) * xyz[j];
+            fy = ALPHA * fy + (1 - ALPHA) * xyz[j + 1];
+            fz = ALPHA * fz + (1 - ALPHA) * xyz[j + 2];
+            sum += (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        }
+        filtered[0] = fx;
+        filtered[1] = fy;
+        filtered[2] = fz;
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float biquadBandPass() {
+        float sum = 0;
+        for (int j = 0; j < SAMPLES * 3; j += 3) {
+            float x = xyz[j];
+            float y = xyz[j + 1];
+            float z = xyz[j + 2];
+            sum += lowPass.process(highPass.process((float) Math.sqrt(x * x + y * y + z * z)));
+        }
+        return sum;
+    }
+}
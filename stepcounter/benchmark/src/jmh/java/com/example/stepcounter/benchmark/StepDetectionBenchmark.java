@@ -0,0 +1,129 @@
+package com.example.stepcounter.benchmark;
+
+import com.example.stepcounter.StepDetector;
+import com.example.stepcounter.StepDetectorFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各检测引擎的逐样本开销：逐样本的 detectStep 与按批的 detectSteps。
+ * 每次调用回放一整段 10 秒轨迹，OperationsPerInvocation 把结果归一到单个样本：
+ * AverageTime 给出 ns/sample，Throughput 给出 samples/ms，gc.alloc.rate.norm 给出 B/sample。
+ * 批量版本按 1 秒（亮屏时的批次延迟）分批。
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StepDetectionBenchmark {
+    private static final int SAMPLES = 10 * SyntheticTraces.SAMPLE_RATE_HZ;
+    private static final int BATCH = SyntheticTraces.SAMPLE_RATE_HZ;
+
+    @Param({"WALKING", "RUNNING", "STILL", "NOISE"})
+    public SyntheticTraces.Scenario scenario;
+
+    @Param({StepDetectorFactory.ENGINE_THRESHOLD, StepDetectorFactory.ENGINE_AUTOCORRELATION,
+            StepDetectorFactory.ENGINE_ZERO_CROSSING})
+    public String engine;
+
+    private float[][] samples;
+    private long[] timestamps;
+    private long durationNs;
+    private long timeOffset;
+    private StepDetector detector;
+    private float[][] batchXyz;
+    private long[][] batchTimestamps;
+    private long[] stepTimestamps;
+    private StepDetector batchDetector;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticTraces trace = SyntheticTraces.generate(scenario, SAMPLES, 42);
+        // 预先拆成逐样本数组，保证测得的分配只来自检测算法本身
+        samples = new float[trace.size][];
+        for (int i = 0; i < trace.size; i++) {
+            samples[i] = new float[]{trace.xyz[i * 3], trace.xyz[i * 3 + 1], trace.xyz[i * 3 + 2]};
+        }
+        timestamps = trace.timestamps;
+        durationNs = trace.durationNs();
+        timeOffset = 0;
+        detector = StepDetectorFactory.create(engine);
+
+        int batches = (trace.size + BATCH - 1) / BATCH;
+        batchXyz = new float[batches][];
+        batchTimestamps = new long[batches][];
+        for (int b = 0; b < batches; b++) {
+            int from = b * BATCH;
+            int to = Math.min(from + BATCH, trace.size);
+            batchXyz[b] = Arrays.copyOfRange(trace.xyz, from * 3, to * 3);
+            batchTimestamps[b] = Arrays.copyOfRange(trace.timestamps, from, to);
+        }
+        stepTimestamps = new long[BATCH];
+        batchDetector = StepDetectorFactory.create(engine);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OperationsPerInvocation(SAMPLES)
+    public int detectStepAverageTime() {
+        return replay();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(SAMPLES)
+    public int detectStepThroughput() {
+        return replay();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OperationsPerInvocation(SAMPLES)
+    public int detectStepsBatchAverageTime() {
+        return replayBatched();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(SAMPLES)
+    public int detectStepsBatchThroughput() {
+        return replayBatched();
+    }
+
+    private int replayBatched() {
+        int steps = 0;
+        for (int b = 0; b < batchXyz.length; b++) {
+            long[] ts = batchTimestamps[b];
+            steps += batchDetector.detectSteps(batchXyz[b], ts, ts.length, stepTimestamps);
+            // 与逐样本版本相同：时间戳整体后移一个轨迹时长，保持单调递增
+            for (int i = 0; i < ts.length; i++) {
+                ts[i] += durationNs;
+            }
+        }
+        return steps;
+    }
+
+    private int replay() {
+        // 检测器状态跨调用保留，时间戳整体后移，保持单调递增
+        int steps = 0;
+        for (int i = 0; i < samples.length; i++) {
+            if (detector.detectStep(samples[i], timestamps[i] + timeOffset)) {
+                steps++;
+            }
+        }
+        timeOffset += durationNs;
+        return steps;
+    }
+}
@@ -0,0 +1,38 @@
+// 设备上的宏基准测试和基准配置文件生成，需要连接 API 28+ 的真机（模拟器的启动时间没有参考价值）。
+// 启动测量: ./gradlew :macrobenchmark:connectedBenchmarkReleaseAndroidTest
+//   结果 JSON 在 build/outputs/connected_android_test_additional_output/ 下，每次构建归档一份即可对比启动时间趋势
+// 生成基准配置文件: ./gradlew :app:generateBaselineProfile
+//   输出到 app/src/release/generated/baselineProfiles/，随 release 包打包
+plugins {
+    alias(libs.plugins.android.test)
+    alias(libs.plugins.baselineprofile)
+}
+
+android {
+    namespace = "com.example.stepcounter.macrobenchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 28
+        targetSdk = 34
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+
+    targetProjectPath = ":app"
+}
+
+baselineProfile {
+    useConnectedDevices = true
+}
+
+dependencies {
+    implementation(libs.ext.junit)
+    implementation(libs.uiautomator)
+    implementation(libs.benchmark.macro.junit4)
+}
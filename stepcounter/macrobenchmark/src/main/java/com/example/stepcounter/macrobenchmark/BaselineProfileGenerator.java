@@ -0,0 +1,63 @@
+package com.example.stepcounter.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * 生成基准配置文件：覆盖冷启动、开始计步（服务和传感器线程的初始化）、设置页统计和历史记录的滚动。
+ * 运行 ./gradlew :app:generateBaselineProfile，结果同时写入启动配置文件，用于 dex 布局优化。
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    private static final long TIMEOUT_MS = 5000;
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(StartupBenchmark.PACKAGE,
+                /* maxIterations = */ 15,
+                /* stableIterations = */ 3,
+                /* outputFilePrefix = */ null,
+                /* includeInStartupProfile = */ true,
+                /* strictStability = */ false,
+                /* filterPredicate = */ className -> true,
+                scope -> {
+                    StartupBenchmark.grantPermissions(scope);
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    click(scope, "startButton");
+                    click(scope, "btnSettings");
+                    click(scope, "btnHistory");
+                    UiObject2 list = scope.getDevice().wait(
+                            Until.findObject(By.res(StartupBenchmark.PACKAGE, "rvHistory")), TIMEOUT_MS);
+                    if (list != null) {
+                        list.fling(Direction.DOWN);
+                        scope.getDevice().waitForIdle();
+                        list.fling(Direction.UP);
+                    }
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private static void click(MacrobenchmarkScope scope, String id) {
+        UiObject2 view = scope.getDevice().wait(
+                Until.findObject(By.res(StartupBenchmark.PACKAGE, id)), TIMEOUT_MS);
+        if (view != null) {
+            view.click();
+            scope.getDevice().waitForIdle();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.stepcounter.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * 启动时间：冷启动、热启动的 TTID / TTFD（StartupTimingMetric），以及前台服务从 onCreate 到第一个传感器样本
+ * 的各段耗时（StepTrace 中的启动区段，release 包上也会输出）。
+ * 每项分别在不预编译和按基准配置文件预编译两种模式下测量，对比配置文件带来的改善。
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    static final String PACKAGE = "com.example.stepcounter";
+    private static final int ITERATIONS = 10;
+    // 等待第一个传感器样本到达（加速度计约 20ms 一个样本，计步传感器可能要几秒）
+    private static final long FIRST_SAMPLE_WAIT_MS = 3000;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartNoCompilation() {
+        startup(StartupMode.COLD, new CompilationMode.None());
+    }
+
+    @Test
+    public void coldStartBaselineProfile() {
+        startup(StartupMode.COLD, new CompilationMode.Partial());
+    }
+
+    @Test
+    public void warmStartBaselineProfile() {
+        startup(StartupMode.WARM, new CompilationMode.Partial());
+    }
+
+    @Test
+    public void serviceStartNoCompilation() {
+        serviceStart(new CompilationMode.None());
+    }
+
+    @Test
+    public void serviceStartBaselineProfile() {
+        serviceStart(new CompilationMode.Partial());
+    }
+
+    private void startup(StartupMode mode, CompilationMode compilation) {
+        rule.measureRepeated(PACKAGE,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilation, mode, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    // 每次迭代先杀掉进程（连同服务），再从主界面启动计步，测量服务的创建、后台初始化和第一个样本
+    private void serviceStart(CompilationMode compilation) {
+        rule.measureRepeated(PACKAGE,
+                Arrays.asList(
+                        new TraceSectionMetric("StepCounter:serviceCreate"),
+                        new TraceSectionMetric("StepCounter:serviceInit"),
+                        new TraceSectionMetric("StepCounter:firstSample")),
+                compilation, null, ITERATIONS,
+                scope -> {
+                    grantPermissions(scope);
+                    scope.killProcess();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    UiObject2 start = scope.getDevice().wait(Until.findObject(By.res(PACKAGE, "startButton")), 5000);
+                    if (start != null) {
+                        start.click();
+                    }
+                    scope.getDevice().waitForIdle();
+                    try {
+                        Thread.sleep(FIRST_SAMPLE_WAIT_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Unit.INSTANCE;
+                });
+    }
+
+    // 预先授予权限，避免权限对话框挡住启动按钮
+    static void grantPermissions(MacrobenchmarkScope scope) {
+        try {
+            scope.getDevice().executeShellCommand("pm grant " + PACKAGE + " android.permission.ACTIVITY_RECOGNITION");
+            scope.getDevice().executeShellCommand("pm grant " + PACKAGE + " android.permission.POST_NOTIFICATIONS");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "stepcounter"
 include(":app")
+include(":benchmark")
+include(":macrobenchmark")